@@ -0,0 +1,25 @@
+package com.secura.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Exposes missing MongoDB indexes under {@code /actuator/health} as "mongoIndexes".
+ */
+@Component("mongoIndexes")
+@RequiredArgsConstructor
+public class MongoIndexHealthIndicator implements ReactiveHealthIndicator {
+
+    private final MongoIndexManager indexManager;
+
+    @Override
+    public Mono<Health> health() {
+        return indexManager.findMissingIndexes()
+                .map(missing -> missing.isEmpty()
+                        ? Health.up().build()
+                        : Health.down().withDetail("missing", missing).build());
+    }
+}
@@ -0,0 +1,151 @@
+package com.secura.config;
+
+import com.secura.entity.Message;
+import com.secura.entity.NotificationOutbox;
+import com.secura.entity.Task;
+import com.secura.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the indexes the repositories rely on at startup and reports any that are missing.
+ * Each index is created independently so one failure (e.g. duplicate usernames blocking the
+ * unique index) does not prevent the others.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexManager {
+
+    record RequiredIndex(Class<?> entity, IndexDefinition definition) {
+        String name() {
+            return definition.getIndexOptions().getString("name");
+        }
+    }
+
+    private static final List<RequiredIndex> REQUIRED_INDEXES = List.of(
+            // Inbox replay and history pages, newest first
+            new RequiredIndex(Message.class, new Index()
+                    .on("recipient", Sort.Direction.ASC)
+                    .on("timestamp", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("recipient_timestamp_id")),
+            // Sent-message branch of findAllMessagesForUser
+            new RequiredIndex(Message.class, new Index()
+                    .on("sender", Sort.Direction.ASC)
+                    .on("timestamp", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("sender_timestamp_id")),
+            // Only undelivered messages are indexed for reconnect replay
+            new RequiredIndex(Message.class, new Index()
+                    .on("recipient", Sort.Direction.ASC)
+                    .on("timestamp", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("delivered").is(false)))
+                    .named("recipient_undelivered")),
+            // Idempotent sends; only messages that carry a client tempId are indexed
+            new RequiredIndex(Message.class, new Index()
+                    .on("sender", Sort.Direction.ASC)
+                    .on("temp_id", Sort.Direction.ASC)
+                    .unique()
+                    .partial(PartialIndexFilter.of(Criteria.where("temp_id").exists(true)))
+                    .named("sender_temp_id")),
+            new RequiredIndex(Task.class, new Index()
+                    .on("assignee", Sort.Direction.ASC)
+                    .on("status", Sort.Direction.ASC)
+                    .named("assignee_status")),
+            // Deadline range queries and (deadline, _id) keyset rehydration scans
+            new RequiredIndex(Task.class, new Index()
+                    .on("status", Sort.Direction.ASC)
+                    .on("deadline", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("status_deadline_id")),
+            new RequiredIndex(User.class, new Index()
+                    .on("username", Sort.Direction.ASC)
+                    .unique()
+                    .named("username_unique")),
+            // Uncollected outboxes are removed once expires_at passes
+            new RequiredIndex(NotificationOutbox.class, new Index()
+                    .on("expires_at", Sort.Direction.ASC)
+                    .expire(Duration.ZERO)
+                    .named("expires_at_ttl"))
+    );
+
+    // Superseded indexes, dropped at startup if still present
+    private static final List<RequiredIndex> OBSOLETE_INDEXES = List.of(
+            new RequiredIndex(Task.class, new Index().named("status_deadline"))
+    );
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        Flux.fromIterable(REQUIRED_INDEXES)
+                .concatMap(index -> mongoTemplate.indexOps(index.entity())
+                        .ensureIndex(index.definition())
+                        .doOnNext(name -> log.info("Ensured index {} on {}",
+                                name, mongoTemplate.getCollectionName(index.entity())))
+                        .onErrorResume(error -> {
+                            log.error("Failed to create index {} on {}", index.name(),
+                                    mongoTemplate.getCollectionName(index.entity()), error);
+                            return Mono.empty();
+                        }))
+                .then(dropObsoleteIndexes())
+                .then(findMissingIndexes())
+                .subscribe(missing -> {
+                    if (!missing.isEmpty()) {
+                        log.warn("Missing MongoDB indexes: {}", missing);
+                    }
+                });
+    }
+
+    /**
+     * Returns "collection.index" names of required indexes that do not exist.
+     */
+    public Mono<List<String>> findMissingIndexes() {
+        return Flux.fromIterable(REQUIRED_INDEXES)
+                .concatMap(index -> existingIndexNames(index.entity())
+                        .filter(existing -> !existing.contains(index.name()))
+                        .map(existing -> mongoTemplate.getCollectionName(index.entity()) + "." + index.name()))
+                .collectList();
+    }
+
+    private Mono<Void> dropObsoleteIndexes() {
+        return Flux.fromIterable(OBSOLETE_INDEXES)
+                .concatMap(index -> existingIndexNames(index.entity())
+                        .filter(existing -> existing.contains(index.name()))
+                        .flatMap(existing -> mongoTemplate.indexOps(index.entity())
+                                .dropIndex(index.name())
+                                .doOnSuccess(unused -> log.info("Dropped obsolete index {} on {}",
+                                        index.name(), mongoTemplate.getCollectionName(index.entity())))))
+                        .onErrorResume(error -> {
+                            log.error("Failed to drop obsolete index {} on {}", index.name(),
+                                    mongoTemplate.getCollectionName(index.entity()), error);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Set<String>> existingIndexNames(Class<?> entity) {
+        return mongoTemplate.indexOps(entity)
+                .getIndexInfo()
+                .map(IndexInfo::getName)
+                .collect(Collectors.toSet());
+    }
+}
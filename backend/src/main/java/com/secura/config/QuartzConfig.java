@@ -2,9 +2,11 @@ package com.secura.config;
 
 import org.quartz.Scheduler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.scheduling.quartz.SpringBeanJobFactory;
 
@@ -22,9 +24,17 @@ public class QuartzConfig {
     }
 
     @Bean
-    public SchedulerFactoryBean schedulerFactoryBean(SpringBeanJobFactory jobFactory) {
+    public SchedulerFactoryBean schedulerFactoryBean(
+            SpringBeanJobFactory jobFactory,
+            @Value("${secura.deadlines.quartz.max-concurrent-jobs:200}") int maxConcurrentJobs) {
+        // Jobs run on virtual threads, bounded so a burst of deadlines cannot flood Mongo
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("quartz-job-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrentJobs);
+
         SchedulerFactoryBean factoryBean = new SchedulerFactoryBean();
         factoryBean.setJobFactory(jobFactory);
+        factoryBean.setTaskExecutor(executor);
         return factoryBean;
     }
 
@@ -3,16 +3,57 @@ package com.secura.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebClientConfig {
 
+    /**
+     * Client for Groq only. Its own connection pool and timeouts keep a slow LLM from
+     * holding connections or event-loop time the rest of the app needs.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider groqConnectionProvider(
+            @Value("${secura.llm.http.max-connections:50}") int maxConnections,
+            @Value("${secura.llm.http.pending-acquire-max:100}") int pendingAcquireMax,
+            @Value("${secura.llm.http.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${secura.llm.http.max-idle-time:30s}") Duration maxIdleTime) {
+        return ConnectionProvider.builder("groq")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient webClient() {
+    public WebClient groqWebClient(ConnectionProvider groqConnectionProvider,
+                               @Value("${secura.llm.http.connect-timeout:3s}") Duration connectTimeout,
+                               @Value("${secura.llm.http.response-timeout:30s}") Duration responseTimeout,
+                               @Value("${secura.llm.http.read-timeout:30s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.create(groqConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+
         return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024))
                 .build();
     }
@@ -1,14 +1,18 @@
 package com.secura.config;
 
+import com.secura.service.OutboundQueue;
 import com.secura.service.ReactiveWebSocketHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
 import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
 import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
-import reactor.core.publisher.Sinks;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import reactor.netty.http.server.WebsocketServerSpec;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -29,12 +33,16 @@ public class WebSocketConfig {
     }
 
     @Bean
-    public WebSocketHandlerAdapter handlerAdapter() {
-        return new WebSocketHandlerAdapter();
+    public WebSocketHandlerAdapter handlerAdapter(
+            @Value("${secura.ws.inbound.max-frame-bytes:65536}") int maxFrameBytes) {
+        // Oversized frames are refused by Netty before they are buffered
+        ReactorNettyRequestUpgradeStrategy upgradeStrategy = new ReactorNettyRequestUpgradeStrategy(
+                () -> WebsocketServerSpec.builder().maxFramePayloadLength(maxFrameBytes));
+        return new WebSocketHandlerAdapter(new HandshakeWebSocketService(upgradeStrategy));
     }
 
     @Bean
-    public Map<String, Sinks.Many<String>> userMessageSinks() {
+    public Map<String, OutboundQueue> userOutboundQueues() {
         return new ConcurrentHashMap<>();
     }
 }
@@ -1,22 +1,24 @@
 package com.secura.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secura.dto.BatchExtractTaskRequest;
 import com.secura.dto.ExtractTaskRequest;
-import com.secura.dto.LLMResponseDTO;
+import com.secura.dto.SummarizeRequest;
+import com.secura.dto.TaskExtractionResult;
 import com.secura.entity.Task;
-import com.secura.repository.TaskRepository;
-import com.secura.service.TaskSchedulerService;
+import com.secura.exception.TaskExtractionException;
+import com.secura.service.AssistantService;
+import com.secura.service.ConversationSummaryService;
+import com.secura.service.TaskExtractionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
@@ -25,11 +27,12 @@ import java.util.Map;
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class LLMController {
-    @Value("${groq.api.key}")
-    private String groqApiKey;
-    private final WebClient webClient;
-    private final TaskRepository taskRepository;
-    private final TaskSchedulerService taskSchedulerService;
+    private final AssistantService assistantService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final TaskExtractionService taskExtractionService;
+
+    @Value("${secura.tasks.extract.max-batch:100}")
+    private int maxExtractBatch;
 
     @PostMapping("/tasks/extract")
     public Mono<ResponseEntity<Task>> extractTaskFromMessages(
@@ -40,185 +43,26 @@ public class LLMController {
             return Mono.just(ResponseEntity.badRequest().build());
         }
 
-        String clientTimezoneId = (request.getTimezone() != null && !request.getTimezone().isEmpty())
-                ? request.getTimezone().get(0)
-                : ZoneId.systemDefault().toString();
-
-        ZoneId tempZone;
-        try {
-            tempZone = ZoneId.of(clientTimezoneId);
-        } catch (Exception e) {
-            log.warn("Invalid timezone provided: {}, using system default", clientTimezoneId);
-            tempZone = ZoneId.systemDefault();
-        }
-        final ZoneId clientZone = tempZone;
-
-        // Get current date/time information in client's timezone
-        ZonedDateTime clientNow = ZonedDateTime.now(clientZone);
-        ZonedDateTime utcNow = ZonedDateTime.now(ZoneOffset.UTC);
-
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy");
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("h:mm a z");
-        DateTimeFormatter isoFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
-
-        String currentDate = clientNow.format(dateFormatter);
-        String currentTime = clientNow.format(timeFormatter);
-        String currentIsoDateTime = clientNow.format(isoFormatter);
-        String utcIsoDateTime = utcNow.format(isoFormatter);
+        return taskExtractionService.extractAndSchedule(request)
+                .map(ResponseEntity::ok)
+                .onErrorResume(TaskExtractionException.class,
+                        e -> Mono.just(ResponseEntity.status(500).build()));
+    }
 
-        // Combine the conversation
-        StringBuilder conversation = new StringBuilder();
-//        for (Map<String, String> msg : textList) {
-//            String sender = msg.getOrDefault("sender", "Unknown");
-//            String content = msg.getOrDefault("content", "");
-//            conversation.append(sender).append(": ").append(content).append("\n");
-//        }
-        for (Map<String, String> msg : textList) {
-            String sender = msg.getOrDefault("sender", "Unknown");
-            String recipient = msg.getOrDefault("recipient", "Unknown");
-            String content = msg.getOrDefault("content", "");
-            conversation.append(sender)
-                    .append(" -> ")
-                    .append(recipient)
-                    .append(": ")
-                    .append(content)
-                    .append("\n");
+    /**
+     * Extracts one task per conversation, streaming a result per conversation as NDJSON
+     * as soon as its task is saved.
+     */
+    @PostMapping(value = "/tasks/extract/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<TaskExtractionResult>> extractTasksBatch(
+            @RequestBody BatchExtractTaskRequest request) {
+
+        List<ExtractTaskRequest> conversations = request.getConversations();
+        if (conversations == null || conversations.isEmpty() || conversations.size() > maxExtractBatch) {
+            return ResponseEntity.badRequest().build();
         }
 
-        // Enhanced prompt with timezone context
-        String prompt = String.format(
-                "Client's Local Date: %s\n" +
-                        "Client's Local Time: %s\n" +
-                        "Client's Local ISO DateTime: %s\n" +
-                        "Client's Timezone: %s\n" +
-                        "UTC ISO DateTime: %s\n\n" +
-                        "Extract a single task from the following conversation. " +
-                        "The user is speaking in their local timezone (%s). When they say 'Monday', 'tomorrow', " +
-                        "'next week', '5 mins from now', etc., they mean in their local time. " +
-                        "Convert ALL relative dates to absolute ISO 8601 format in the CLIENT'S LOCAL TIMEZONE " +
-                        "(include the timezone offset like +05:30 or -07:00). " +
-                        "Return valid JSON with keys: task_title, deadline (ISO 8601 format with timezone offset, else null), " +
-                        "assignee (if any, else null), assigned_by (the person who gave the task, if identifiable, " +
-                        "else infer as the sender who instructed the task). " +
-                        "Do not include code fences or explanations, only JSON.\n\n" +
-                        "Conversation:\n%s",
-                currentDate, currentTime, currentIsoDateTime, clientZone.toString(),
-                utcIsoDateTime, clientZone.toString(), conversation.toString()
-        );
-
-        // Enhanced system message with timezone context
-        String systemMessage = String.format(
-                "You are a task extraction assistant. The user's current local date/time is %s at %s (timezone: %s). " +
-                        "When interpreting relative dates in conversations, use the user's local date/time as reference. " +
-                        "Always respond with ONLY a raw JSON object containing task_title, deadline, assignee, and assigned_by. " +
-                        "Convert relative time references to absolute ISO 8601 datetime format WITH the user's timezone offset. " +
-                        "Example: if user says 'tomorrow 2pm' and their timezone is +05:30, return '2025-09-12T14:00:00+05:30'.",
-                currentDate, currentTime, clientZone.toString()
-        );
-
-        Map<String, Object> body = Map.of(
-                "model", "llama-3.3-70b-versatile",
-                "messages", List.of(
-                        Map.of("role", "system", "content", systemMessage),
-                        Map.of("role", "user", "content", prompt)
-                ),
-                "temperature", 0.2,
-                "max_tokens", 300
-        );
-
-        return webClient.post()
-                .uri("https://api.groq.com/openai/v1/chat/completions")
-                .header("Authorization", "Bearer " + groqApiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(LLMResponseDTO.class)
-                .flatMap(resp -> {
-                    String responseText = resp.getChoices().stream()
-                            .findFirst()
-                            .map(choice -> choice.getMessage().getContent())
-                            .orElse("{}");
-
-                    // Clean up (remove ```json ... ``` if present)
-                    String cleaned = responseText
-                            .replaceAll("(?s)```json", "")
-                            .replaceAll("(?s)```", "")
-                            .trim();
-
-                    try {
-                        ObjectMapper mapper = new ObjectMapper();
-                        Map<String, Object> taskData = mapper.readValue(cleaned, new TypeReference<>() {});
-
-                        // Parse deadline and convert to UTC for storage
-                        Instant deadlineUtc = null;
-                        if (taskData.get("deadline") != null &&
-                                !taskData.get("deadline").toString().isBlank()) {
-                            String deadlineStr = taskData.get("deadline").toString();
-                            try {
-                                // Parse the deadline from LLM (should be in client's timezone)
-                                ZonedDateTime clientDeadline;
-
-                                if (deadlineStr.contains("+") || deadlineStr.contains("Z") || deadlineStr.contains("-")) {
-                                    // Already has timezone information
-                                    clientDeadline = ZonedDateTime.parse(deadlineStr);
-                                } else {
-                                    // No timezone info, assume client's timezone
-                                    LocalDateTime localDeadline = LocalDateTime.parse(deadlineStr);
-                                    clientDeadline = localDeadline.atZone(clientZone);
-                                }
-
-                                // Convert to UTC for storage
-                                deadlineUtc = clientDeadline.toInstant();
-
-                                log.info("Parsed deadline - Client time: {}, UTC: {}",
-                                        clientDeadline, deadlineUtc);
-
-                            } catch (Exception e) {
-                                log.error("Failed to parse deadline: {}", deadlineStr, e);
-                                deadlineUtc = null;
-                            }
-                        }
-
-                        // Handle assignedBy with fallback
-                        String assignedBy = (String) taskData.get("assigned_by");
-                        if (assignedBy == null || assignedBy.isBlank()) {
-                            for (Map<String, String> msg : textList) {
-                                String content = msg.get("content");
-                                if (content != null && (
-                                        content.toLowerCase().contains("finish") ||
-                                                content.toLowerCase().contains("complete") ||
-                                                content.toLowerCase().contains("do") ||
-                                                content.toLowerCase().contains("by "))) {
-                                    assignedBy = msg.getOrDefault("sender", "Unknown");
-                                    break;
-                                }
-                            }
-                            if (assignedBy == null) {
-                                assignedBy = "Unknown";
-                            }
-                        }
-
-                        // Create task with UTC times
-                        Task task = Task.builder()
-                                .taskTitle((String) taskData.getOrDefault("task_title", "Untitled Task"))
-                                .deadline(deadlineUtc) // Stored in UTC
-                                .assignee((String) taskData.get("assignee"))
-                                .assignedBy(assignedBy)
-                                .status(Task.Status.PENDING)
-                                // createdAt will be set by @CreatedDate annotation in UTC
-                                .build();
-
-                        return taskRepository.save(task)
-                                .flatMap(saved -> {
-                                    taskSchedulerService.scheduleTaskNotification(saved);
-                                    return Mono.just(ResponseEntity.ok(saved));
-                                });
-
-                    } catch (Exception e) {
-                        log.error("Failed to parse task extraction response: {}", cleaned, e);
-                        return Mono.just(ResponseEntity.status(500).build());
-                    }
-                });
+        return ResponseEntity.ok(taskExtractionService.extractBatch(conversations));
     }
 
     @PostMapping("/chat")
@@ -228,81 +72,58 @@ public class LLMController {
             return Mono.just(ResponseEntity.badRequest().body(Map.of("response", "Prompt is required")));
         }
 
-        Map<String, Object> body = Map.of(
-                "model", "llama-3.3-70b-versatile",
-                "messages", List.of(
-                        Map.of(
-                                "role", "system",
-                                "content", "You are a helpful AI assistant. Provide concise, accurate answers in plain text. Do NOT use Markdown formatting, bold, italics, or lists."
-                        ),
-                        Map.of("role", "user", "content", prompt)
-                ),
-                "temperature", 0.7,
-                "max_tokens", 500
-        );
+        return assistantService.chat(prompt)
+                .map(responseText -> ResponseEntity.ok(Map.of("response", responseText)));
+    }
 
+    /**
+     * Streams the chat completion as server-sent "token" events followed by a "done" event.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> streamLLM(@RequestBody Map<String, String> request) {
+        String prompt = request.get("query");
+        if (prompt == null || prompt.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        return webClient.post()
-                .uri("https://api.groq.com/openai/v1/chat/completions")
-                .header("Authorization", "Bearer " + groqApiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(LLMResponseDTO.class)
-                .map(resp -> {
-                    String responseText = resp.getChoices().stream()
-                            .findFirst()
-                            .map(choice -> choice.getMessage().getContent())
-                            .orElse("");
-                    return ResponseEntity.ok(Map.of("response", responseText));
-                });
+        return ResponseEntity.ok(toEvents(assistantService.streamChat(prompt)));
     }
 
     @PostMapping("/summarize")
-    public Mono<ResponseEntity<Map<String, String>>> summarize(@RequestBody Map<String, List<Map<String, String>>> request) {
-        List<Map<String, String>> textList = request.get("text");
+    public Mono<ResponseEntity<Map<String, String>>> summarize(@RequestBody SummarizeRequest request) {
+        List<Map<String, String>> textList = request.getText();
 
         if (textList == null || textList.isEmpty()) {
             return Mono.just(ResponseEntity.badRequest().body(Map.of("summary", "Text input is required")));
         }
 
-        // Build conversation string from sender + content
-        StringBuilder conversation = new StringBuilder();
-        for (Map<String, String> msg : textList) {
-            String sender = msg.getOrDefault("sender", "Unknown");
-            String content = msg.getOrDefault("content", "");
-            conversation.append(sender).append(": ").append(content).append("\n");
-        }
+        return conversationSummaryService.summarize(request.getConversationId(), textList)
+                .map(summary -> ResponseEntity.ok(Map.of("summary", summary)));
+    }
 
-        String summarizationPrompt = "Summarize the following conversation into a concise summary:\n\n"
-                + conversation;
+    /**
+     * Streams the summary as server-sent "token" events followed by a "done" event. Takes
+     * the same body as {@code /summarize}; the whole text is summarized, without the
+     * incremental watermark.
+     */
+    @PostMapping(value = "/summarize/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> streamSummary(@RequestBody SummarizeRequest request) {
+        List<Map<String, String>> textList = request.getText();
 
-        Map<String, Object> body = Map.of(
-                "model", "llama-3.3-70b-versatile",
-                "messages", List.of(
-                        Map.of(
-                                "role", "system",
-                                "content", "You are a helpful AI assistant. Summarize conversations clearly and concisely in plain text. Do not use Markdown or formatting."
-                        ),
-                        Map.of("role", "user", "content", summarizationPrompt)
-                ),
-                "temperature", 0.5,
-                "max_tokens", 200
-        );
+        if (textList == null || textList.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(toEvents(assistantService.streamSummary(textList)));
+    }
 
-        return webClient.post()
-                .uri("https://api.groq.com/openai/v1/chat/completions")
-                .header("Authorization", "Bearer " + groqApiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(LLMResponseDTO.class)
-                .map(resp -> {
-                    String summary = resp.getChoices().stream()
-                            .findFirst()
-                            .map(choice -> choice.getMessage().getContent())
-                            .orElse("");
-                    return ResponseEntity.ok(Map.of("summary", summary));
+    private static Flux<ServerSentEvent<String>> toEvents(Flux<String> tokens) {
+        return tokens
+                .map(token -> ServerSentEvent.builder(token).event("token").build())
+                .concatWith(Mono.just(ServerSentEvent.builder("").event("done").build()))
+                .onErrorResume(error -> {
+                    log.error("LLM stream failed", error);
+                    return Mono.just(ServerSentEvent.builder(String.valueOf(error.getMessage())).event("error").build());
                 });
     }
 
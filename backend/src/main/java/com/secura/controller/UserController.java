@@ -1,18 +1,32 @@
 package com.secura.controller;
 
+import com.secura.dto.UserView;
 import com.secura.entity.User;
 import com.secura.repository.UserRepository;
+import com.secura.exception.LoginRateLimitedException;
+import com.secura.exception.PasswordHashingOverloadedException;
+import com.secura.service.ClientAddressResolver;
+import com.secura.service.LoginRateLimiter;
+import com.secura.service.LoginTokenService;
+import com.secura.service.PasswordHashingService;
+import com.secura.service.PresenceStore;
+import com.secura.service.UserDirectoryService;
 import com.secura.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 @Slf4j
 @RestController
 @RequestMapping("/api")
@@ -20,8 +34,16 @@ import java.util.Map;
 public class UserController {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final PasswordHashingService passwordHashing;
     private final UserService userService;
+    private final PresenceStore presenceStore;
+    private final UserDirectoryService userDirectoryService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final LoginTokenService loginTokenService;
+    private final ClientAddressResolver clientAddressResolver;
+
+    @Value("${secura.keys.max-batch:500}")
+    private int maxKeyBatch;
 
     @PostMapping("/register")
     public Mono<ResponseEntity<?>> registerUser(@RequestBody User user) {
@@ -49,61 +71,128 @@ public class UserController {
                         );
                     }
 
-                    user.setPassword(passwordEncoder.encode(user.getPassword()));
-                    user.setOnline(true);
-                    user.setLastSeen(System.currentTimeMillis());
-
-                    return userRepository.save(user)
+                    return passwordHashing.encode(user.getPassword())
+                            .flatMap(hash -> {
+                                user.setPassword(hash);
+                                user.setOnline(true);
+                                user.setLastSeen(System.currentTimeMillis());
+                                return userService.createUser(user);
+                            })
                             .map(savedUser -> ResponseEntity.ok(savedUser));
                 })
-                .onErrorResume(e -> {
+                // Overload is mapped to 503 by GlobalExceptionHandler
+                .onErrorResume(e -> !(e instanceof PasswordHashingOverloadedException), e -> {
                     log.error("Error during registration", e);
                     return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body("Registration failed"));
                 });
     }
 
+    /**
+     * Logs in with a password or, when none is given, with the single-use {@code loginToken}
+     * returned by the previous login, which skips the user lookup and BCrypt. Every successful
+     * login returns a fresh token. Attempts are rate limited before any other work: all of
+     * them per client IP, password attempts also per user.
+     */
     @PostMapping("/login")
-    public Mono<ResponseEntity<?>> loginUser(@RequestBody Map<String, String> loginRequest) {
+    public Mono<ResponseEntity<?>> loginUser(@RequestBody Map<String, String> loginRequest,
+                                             ServerHttpRequest request) {
         String username = loginRequest.get("username");
         String password = loginRequest.get("password");
+        String loginToken = loginRequest.get("loginToken");
         String publicKey = loginRequest.get("publicKey");
-        Boolean forceLogin = Boolean.parseBoolean(loginRequest.getOrDefault("forceLogin", "false"));
+        boolean forceLogin = Boolean.parseBoolean(loginRequest.getOrDefault("forceLogin", "false"));
 
-        if (username == null || password == null) {
+        if (username == null || (password == null && loginToken == null)) {
             return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Username and password are required"));
         }
 
-        return userRepository.findByUsername(username)
-                .flatMap(user -> {
-                    if (!passwordEncoder.matches(password, user.getPassword())) {
-                        return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                                .body("Invalid password"));
-                    }
+        String ip = clientAddressResolver.resolve(request);
+        // A password the user just typed wins over a stored token
+        Mono<ResponseEntity<?>> attempt = password != null
+                ? loginRateLimiter.acquire(username, ip)
+                        .then(Mono.defer(() -> loginWithPassword(username, password, publicKey, forceLogin)))
+                : loginRateLimiter.acquire(ip)
+                        .then(Mono.defer(() -> loginWithToken(username, loginToken, publicKey, forceLogin)));
 
-                    user.setOnline(true);
-                    user.setLastSeen(System.currentTimeMillis());
-
-                    return userService.saveUser(user, publicKey)
-                            .map(savedUser -> {
-                                String message = forceLogin ? "Forced login successful" : "Login successful";
-                                return ResponseEntity.ok(Map.of(
-                                        "message", message,
-                                        "username", savedUser.getUsername(),
-                                        "online", savedUser.getOnline()
-                                ));
-                            });
-                })
-                .switchIfEmpty(Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body("User not found")))
-                .onErrorResume(e -> {
+        return attempt
+                // Overload and rate limiting are mapped to 503/429 by GlobalExceptionHandler
+                .onErrorResume(e -> !(e instanceof PasswordHashingOverloadedException
+                        || e instanceof LoginRateLimitedException), e -> {
                     log.error("Error during login", e);
                     return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body("Login failed"));
                 });
     }
 
+    private Mono<ResponseEntity<?>> loginWithPassword(String username, String password,
+                                                      String publicKey, boolean forceLogin) {
+        return userRepository.findByUsername(username)
+                .flatMap(user -> passwordHashing.matches(password, user.getPassword())
+                        .flatMap(matched -> {
+                            if (!matched) {
+                                return Mono.<ResponseEntity<?>>just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                        .body("Invalid password"));
+                            }
+                            String storedHash = user.getPassword();
+
+                            // Only a changed public key needs a document write; presence is write-behind
+                            Mono<User> persisted = userService.isPublicKeyChanged(user, publicKey)
+                                    ? userService.saveUser(user, publicKey)
+                                    : Mono.just(user);
+
+                            // Only failed attempts count against the user's budget
+                            return loginRateLimiter.refund(username)
+                                    .then(presenceStore.markOnline(username))
+                                    .then(persisted)
+                                    // After the save so a full-document write cannot undo the new hash
+                                    .doOnNext(savedUser -> userService.upgradePasswordHash(username, storedHash, password))
+                                    .flatMap(savedUser -> loginSucceeded(savedUser.getUsername(), forceLogin));
+                        }))
+                .switchIfEmpty(Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body("User not found")));
+    }
+
+    private Mono<ResponseEntity<?>> loginWithToken(String username, String loginToken,
+                                                   String publicKey, boolean forceLogin) {
+        return loginTokenService.redeem(username, loginToken)
+                .flatMap(valid -> {
+                    if (!valid) {
+                        return Mono.<ResponseEntity<?>>just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                .body("Invalid or expired login token"));
+                    }
+                    return presenceStore.markOnline(username)
+                            .then(updatePublicKey(username, publicKey))
+                            .then(loginSucceeded(username, forceLogin));
+                });
+    }
+
+    // Compares against the cached key so an unchanged key costs no Mongo round trip
+    private Mono<Void> updatePublicKey(String username, String publicKey) {
+        if (publicKey == null || publicKey.isBlank()) {
+            return Mono.empty();
+        }
+        return userService.getPublicKey(username)
+                .filter(publicKey::equals)
+                .hasElement()
+                .flatMap(unchanged -> unchanged
+                        ? Mono.<Void>empty()
+                        : userRepository.findByUsername(username)
+                                .flatMap(user -> userService.saveUser(user, publicKey))
+                                .then());
+    }
+
+    private Mono<ResponseEntity<?>> loginSucceeded(String username, boolean forceLogin) {
+        return loginTokenService.issue(username)
+                .map(token -> ResponseEntity.ok(Map.of(
+                        "message", forceLogin ? "Forced login successful" : "Login successful",
+                        "username", username,
+                        "online", true,
+                        "loginToken", token
+                )));
+    }
+
     @GetMapping("/users/{username}")
     public Mono<ResponseEntity<Map<String, String>>> getUserPublicInfo(@PathVariable String username) {
         return userService.getPublicKey(username)
@@ -115,9 +204,53 @@ public class UserController {
                         .body(Map.of("error", "User not found"))));
     }
 
-    @GetMapping("/users")
-    public Flux<User> getUsers() {
-        return userRepository.findAll();
+    /**
+     * Public keys for many users in one call. Unknown users are listed under "missing".
+     */
+    @PostMapping("/users/keys")
+    public Mono<ResponseEntity<Map<String, Object>>> getPublicKeys(
+            @RequestBody Map<String, List<String>> request) {
+        List<String> usernames = request.get("usernames");
+        if (usernames == null || usernames.isEmpty() || usernames.size() > maxKeyBatch) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of("error", "usernames must contain 1 to " + maxKeyBatch + " entries")));
+        }
+
+        Set<String> requested = new LinkedHashSet<>(usernames);
+        return userService.getPublicKeys(requested)
+                .map(keys -> ResponseEntity.ok(Map.of(
+                        "keys", keys,
+                        "missing", requested.stream().filter(username -> !keys.containsKey(username)).toList()
+                )));
+    }
+
+    /**
+     * The user directory, ordered by username; {@code prefix} restricts to matching usernames.
+     * Without {@code limit} or {@code after} every matching user is streamed. Paging is opt-in:
+     * with {@code limit}, pass the last username of a page as {@code after} for the next one;
+     * a page shorter than {@code limit} is the last.
+     */
+    @GetMapping(value = "/users",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserView> getUsers(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "true") boolean presence) {
+        if (limit == null && after == null) {
+            return userDirectoryService.export(prefix, presence);
+        }
+        return userDirectoryService.page(prefix, after, userDirectoryService.pageSize(limit), presence);
+    }
+
+    /**
+     * The whole directory (or every user matching {@code prefix}) as NDJSON, streamed from one cursor.
+     */
+    @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserView> exportUsers(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(defaultValue = "false") boolean presence) {
+        return userDirectoryService.export(prefix, presence);
     }
 
     @GetMapping("/health")
@@ -0,0 +1,10 @@
+package com.secura.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchExtractTaskRequest {
+    private List<ExtractTaskRequest> conversations;
+}
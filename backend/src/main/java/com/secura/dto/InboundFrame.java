@@ -0,0 +1,28 @@
+package com.secura.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Fields of an inbound WebSocket frame that the handler dispatches on.
+ * Populated by a streaming decoder; fields not present in the frame stay null.
+ */
+@Data
+@NoArgsConstructor
+public class InboundFrame {
+    private String type;
+    private String username;
+    private String recipient;
+    private String content;
+    private String tempId;
+    private String messageId;
+    private List<String> messageIds;
+    private Boolean online;
+    private List<String> usernames;
+    private String before;
+    private String beforeId;
+    private Integer limit;
+    private String requestId;
+}
@@ -1,5 +1,6 @@
 package com.secura.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +13,7 @@ import java.util.List;
 public class LLMResponseDTO {
 
     private List<Choice> choices;
+    private Usage usage;
 
     @Data
     @NoArgsConstructor
@@ -27,4 +29,15 @@ public class LLMResponseDTO {
         private String role;
         private String content;
     }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Usage {
+        @JsonProperty("prompt_tokens")
+        private Integer promptTokens;
+
+        @JsonProperty("completion_tokens")
+        private Integer completionTokens;
+    }
 }
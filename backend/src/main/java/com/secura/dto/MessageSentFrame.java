@@ -0,0 +1,13 @@
+package com.secura.dto;
+
+public record MessageSentFrame(String type, String tempId, String messageId, Boolean delivered, boolean duplicate) {
+
+    public static MessageSentFrame of(String tempId, String messageId, Boolean delivered) {
+        return new MessageSentFrame("message_sent", tempId, messageId, delivered, false);
+    }
+
+    // Confirms a retried send with the id of the message stored the first time
+    public static MessageSentFrame duplicateOf(String tempId, String messageId, Boolean delivered) {
+        return new MessageSentFrame("message_sent", tempId, messageId, delivered, true);
+    }
+}
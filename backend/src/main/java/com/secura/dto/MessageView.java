@@ -0,0 +1,11 @@
+package com.secura.dto;
+
+import com.secura.entity.Message;
+
+public record MessageView(String id, String sender, String recipient, String content, String timestamp) {
+
+    public static MessageView of(Message message) {
+        return new MessageView(message.getId(), message.getSender(), message.getRecipient(),
+                message.getContent(), message.getTimestamp().toString());
+    }
+}
@@ -0,0 +1,12 @@
+package com.secura.dto;
+
+import com.secura.entity.Message;
+
+public record NewMessageFrame(String type, String id, String sender, String recipient,
+                              String content, String timestamp) {
+
+    public static NewMessageFrame of(Message message) {
+        return new NewMessageFrame("new_message", message.getId(), message.getSender(),
+                message.getRecipient(), message.getContent(), message.getTimestamp().toString());
+    }
+}
@@ -0,0 +1,4 @@
+package com.secura.dto;
+
+public record PresenceUpdate(String username, boolean online, long lastSeen) {
+}
@@ -0,0 +1,13 @@
+package com.secura.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SummarizeRequest {
+    // Optional; when set, only messages after the stored watermark are summarized
+    private String conversationId;
+    private List<Map<String, String>> text;
+}
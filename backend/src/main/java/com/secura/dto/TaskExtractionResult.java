@@ -0,0 +1,17 @@
+package com.secura.dto;
+
+import com.secura.entity.Task;
+
+/**
+ * Outcome for one conversation of a batch extraction; {@code index} is its position in the request.
+ */
+public record TaskExtractionResult(int index, Task task, String error) {
+
+    public static TaskExtractionResult extracted(int index, Task task) {
+        return new TaskExtractionResult(index, task, null);
+    }
+
+    public static TaskExtractionResult failed(int index, String error) {
+        return new TaskExtractionResult(index, null, error);
+    }
+}
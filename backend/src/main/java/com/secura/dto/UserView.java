@@ -0,0 +1,10 @@
+package com.secura.dto;
+
+import com.secura.entity.User;
+
+public record UserView(String username, Boolean online, Long lastSeen) {
+
+    public static UserView of(User user) {
+        return new UserView(user.getUsername(), user.getOnline(), user.getLastSeen());
+    }
+}
@@ -0,0 +1,35 @@
+package com.secura.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * Rolling summary of a conversation. The watermark is the number of messages already folded
+ * into the summary plus a fingerprint of the last of them, so a request can tell whether the
+ * thread it sent extends the one that was summarized.
+ */
+@Document("conversation_summaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+    @Id
+    private String conversationId;
+
+    private String summary;
+
+    @Field("message_count")
+    private Integer messageCount;
+
+    @Field("last_message_fingerprint")
+    private String lastMessageFingerprint;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+}
@@ -26,4 +26,12 @@ public class Message {
 
     @Field("delivered")
     private Boolean delivered = false;
+
+    // Set when an undelivered message is replayed on reconnect; cleared by deletion on ACK
+    @Field("replayed_at")
+    private Instant replayedAt;
+
+    // Client-generated id used to deduplicate retried sends; unique per sender when present
+    @Field("temp_id")
+    private String tempId;
 }
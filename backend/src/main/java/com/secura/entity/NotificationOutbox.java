@@ -0,0 +1,43 @@
+package com.secura.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notifications queued for a user who was not connected when they were sent. One document
+ * per user, newest last, capped on write; the document expires at {@code expires_at}.
+ */
+@Document("notification_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutbox {
+    @Id
+    private String username;
+
+    private List<Entry> notifications;
+
+    @Field("expires_at")
+    private Instant expiresAt;
+
+    /**
+     * One queued notification frame; the entry id lets a replay remove exactly what it sent.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        @Field("entry_id")
+        private String entryId;
+
+        private Map<String, Object> frame;
+    }
+}
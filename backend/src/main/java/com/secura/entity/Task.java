@@ -32,6 +32,15 @@ public class Task {
     @Field("created_at")
     private Instant createdAt;
 
+    // Set atomically by the node that claims the deadline notification, so it is sent once
+    private Boolean notified;
+
+    @Field("notified_at")
+    private Instant notifiedAt;
+
+    @Field("notified_by")
+    private String notifiedBy;
+
     public enum Status {
         PENDING, DONE
     }
@@ -0,0 +1,11 @@
+package com.secura.exception;
+
+public class InvalidFrameException extends RuntimeException {
+    public InvalidFrameException(String message) {
+        super(message);
+    }
+
+    public InvalidFrameException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.secura.exception;
+
+public class LlmOverloadedException extends RuntimeException {
+    public LlmOverloadedException(String message) {
+        super(message);
+    }
+}
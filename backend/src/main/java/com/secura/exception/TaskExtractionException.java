@@ -0,0 +1,11 @@
+package com.secura.exception;
+
+public class TaskExtractionException extends RuntimeException {
+    public TaskExtractionException(String message) {
+        super(message);
+    }
+
+    public TaskExtractionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
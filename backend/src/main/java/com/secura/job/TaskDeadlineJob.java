@@ -1,25 +1,25 @@
 package com.secura.job;
 
-import com.secura.repository.TaskRepository;
-import com.secura.service.TaskNotificationService;
+import com.secura.service.DeadlineDispatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
 import org.springframework.beans.factory.annotation.Autowired;
-import reactor.core.publisher.Mono;
+
+import java.time.Duration;
 
 @Slf4j
 public class TaskDeadlineJob implements Job {
 
-    @Autowired
-    private TaskRepository taskRepository;
+    private static final Duration DISPATCH_TIMEOUT = Duration.ofSeconds(30);
 
     @Autowired
-    private TaskNotificationService notificationService;
+    private DeadlineDispatcher deadlineDispatcher;
 
     @Override
-    public void execute(JobExecutionContext context) {
+    public void execute(JobExecutionContext context) throws JobExecutionException {
         JobDataMap dataMap = context.getJobDetail().getJobDataMap();
         if (!dataMap.containsKey("taskId")) {
             log.error("No taskId found in JobDataMap");
@@ -27,16 +27,15 @@ public class TaskDeadlineJob implements Job {
         }
 
         String taskId = dataMap.getString("taskId");
+        log.info("Triggering deadline notification for task {}", taskId);
 
-        taskRepository.findById(taskId)
-                .doOnNext(task -> {
-                    log.info("Triggering deadline notification for task {}", taskId);
-                    notificationService.sendDeadlineNotification(task);
-                })
-                .switchIfEmpty(Mono.fromRunnable(() ->
-                        log.warn("Task {} not found when deadline job triggered", taskId)
-                ))
-                .doOnError(error -> log.error("Error executing deadline job for task {}", taskId, error))
-                .subscribe();
+        // Runs on a virtual thread, so waiting here is cheap and keeps Quartz's accounting honest;
+        // coinciding firings join one batched claim and lookup in the dispatcher
+        try {
+            deadlineDispatcher.submit(taskId).block(DISPATCH_TIMEOUT);
+        } catch (Exception e) {
+            log.error("Error executing deadline job for task {}", taskId, e);
+            throw new JobExecutionException(e);
+        }
     }
 }
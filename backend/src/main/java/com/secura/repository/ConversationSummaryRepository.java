@@ -0,0 +1,9 @@
+package com.secura.repository;
+
+import com.secura.entity.ConversationSummary;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConversationSummaryRepository extends ReactiveMongoRepository<ConversationSummary, String> {
+}
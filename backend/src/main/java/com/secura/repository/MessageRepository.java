@@ -1,18 +1,32 @@
 package com.secura.repository;
 
 import com.secura.entity.Message;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
 
 @Repository
 public interface MessageRepository extends ReactiveMongoRepository<Message, String> {
 
-    Flux<Message> findByRecipient(String recipient);
-
     @Query("{ '$or': [ { 'sender': ?0 }, { 'recipient': ?0 } ] }")
-    Flux<Message> findAllMessagesForUser(String user);
+    Flux<Message> findAllMessagesForUser(String user, Pageable pageable);
+
+    // Keyset page: messages strictly older than (timestamp, id) in (timestamp desc, _id desc) order
+    @Query("{ '$and': [ { '$or': [ { 'sender': ?0 }, { 'recipient': ?0 } ] }, " +
+            "{ '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] } ] }")
+    Flux<Message> findAllMessagesForUserBefore(String user, Instant timestamp, ObjectId beforeId, Pageable pageable);
+
+    Mono<Message> findBySenderAndTempId(String sender, String tempId);
 
-    Flux<Message> findByRecipientAndDeliveredFalse(String recipient);
+    // Undelivered messages never replayed, or replayed before the cutoff without an ACK
+    @Query(value = "{ 'recipient': ?0, 'delivered': false, " +
+            "'$or': [ { 'replayed_at': null }, { 'replayed_at': { '$lt': ?1 } } ] }",
+            sort = "{ 'timestamp': 1 }")
+    Flux<Message> findReplayableForRecipient(String recipient, Instant replayedBefore, Pageable pageable);
 }
@@ -1,11 +1,15 @@
 package com.secura.repository;
 
 import com.secura.entity.User;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
+import java.util.Collection;
+
 public interface UserRepository extends ReactiveMongoRepository<User, String> {
     Mono<User> findByUsername(String username);
     Mono<Boolean> existsByUsername(String username);
+    Flux<User> findByUsernameIn(Collection<String> usernames);
 }
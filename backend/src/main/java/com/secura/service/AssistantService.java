@@ -0,0 +1,147 @@
+package com.secura.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chat and summarization prompts for the assistant, shared by the REST endpoints and the
+ * WebSocket {@code llm_chat} frame. Completions, streamed or not, go through
+ * {@link LlmResponseCache}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AssistantService {
+
+    private static final String MODEL = "llama-3.3-70b-versatile";
+    private static final String SUMMARIZE_PROMPT = "Summarize the following conversation into a concise summary:\n\n";
+
+    private final GroqClient groqClient;
+    private final LlmResponseCache llmResponseCache;
+
+    public Mono<String> chat(String prompt) {
+        // Identical prompts are served from cache; concurrent ones share a single Groq call
+        return llmResponseCache.get(chatRequest(prompt), payload -> groqClient.complete("chat", payload));
+    }
+
+    public Flux<String> streamChat(String prompt) {
+        return cachedOrStream("chat", chatRequest(prompt));
+    }
+
+    public Mono<String> summarize(List<Map<String, String>> messages) {
+        return summarizeTranscript(transcript(messages));
+    }
+
+    public Flux<String> streamSummary(List<Map<String, String>> messages) {
+        return cachedOrStream("summarize", summarizeRequest(SUMMARIZE_PROMPT + transcript(messages), 200));
+    }
+
+    /**
+     * Summarizes a transcript of "sender: content" lines.
+     */
+    public Mono<String> summarizeTranscript(String transcript) {
+        // Several participants summarizing the same window hit the cache
+        return summaryCompletion(SUMMARIZE_PROMPT + transcript, 200);
+    }
+
+    /**
+     * Folds new messages into an earlier summary of the same conversation.
+     */
+    public Mono<String> extendSummary(String previousSummary, String transcript) {
+        return summaryCompletion(
+                "Here is a summary of a conversation so far:\n\n" + previousSummary +
+                        "\n\nUpdate it to also cover these newer messages, keeping it concise:\n\n" + transcript, 200);
+    }
+
+    /**
+     * Combines summaries of consecutive parts of a conversation (and optionally an earlier
+     * summary of what came before them) into one.
+     */
+    public Mono<String> mergeSummaries(String previousSummary, String partSummaries) {
+        String prompt = previousSummary == null
+                ? "Combine these summaries of consecutive parts of one conversation into a single concise summary:\n\n" +
+                        partSummaries
+                : "Here is a summary of a conversation so far:\n\n" + previousSummary +
+                        "\n\nUpdate it with these summaries of the newer parts, keeping it concise:\n\n" + partSummaries;
+        return summaryCompletion(prompt, 300);
+    }
+
+    private Mono<String> summaryCompletion(String prompt, int maxTokens) {
+        return llmResponseCache.get(summarizeRequest(prompt, maxTokens),
+                payload -> groqClient.complete("summarize", payload));
+    }
+
+    /**
+     * Replays a cached completion as a single token, otherwise streams from Groq and caches
+     * the assembled text once the stream completes.
+     */
+    private Flux<String> cachedOrStream(String endpoint, Map<String, Object> body) {
+        return llmResponseCache.peek(body)
+                .flux()
+                .switchIfEmpty(Flux.defer(() -> {
+                    StringBuilder completion = new StringBuilder();
+                    Mono<String> cacheCompletion = Mono.defer(() -> llmResponseCache.put(body, completion.toString()))
+                            .onErrorResume(error -> {
+                                log.warn("Failed to cache streamed {} completion", endpoint, error);
+                                return Mono.empty();
+                            })
+                            .then(Mono.empty());
+                    return groqClient.stream(endpoint, body)
+                            .doOnNext(completion::append)
+                            .concatWith(cacheCompletion);
+                }));
+    }
+
+    private static Map<String, Object> chatRequest(String prompt) {
+        return Map.of(
+                "model", MODEL,
+                "messages", List.of(
+                        Map.of(
+                                "role", "system",
+                                "content", "You are a helpful AI assistant. Provide concise, accurate answers in plain text. Do NOT use Markdown formatting, bold, italics, or lists."
+                        ),
+                        Map.of("role", "user", "content", prompt)
+                ),
+                "temperature", 0.7,
+                "max_tokens", 500
+        );
+    }
+
+    /**
+     * Renders messages as "sender: content" lines.
+     */
+    public static String transcript(List<Map<String, String>> messages) {
+        StringBuilder conversation = new StringBuilder();
+        for (Map<String, String> msg : messages) {
+            conversation.append(transcriptLine(msg));
+        }
+        return conversation.toString();
+    }
+
+    public static String transcriptLine(Map<String, String> msg) {
+        String sender = msg.getOrDefault("sender", "Unknown");
+        String content = msg.getOrDefault("content", "");
+        return sender + ": " + content + "\n";
+    }
+
+    private static Map<String, Object> summarizeRequest(String prompt, int maxTokens) {
+        return Map.of(
+                "model", MODEL,
+                "messages", List.of(
+                        Map.of(
+                                "role", "system",
+                                "content", "You are a helpful AI assistant. Summarize conversations clearly and concisely in plain text. Do not use Markdown or formatting."
+                        ),
+                        Map.of("role", "user", "content", prompt)
+                ),
+                "temperature", 0.5,
+                "max_tokens", maxTokens
+        );
+    }
+}
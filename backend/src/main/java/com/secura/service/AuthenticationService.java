@@ -3,8 +3,8 @@ package com.secura.service;
 import com.secura.entity.User;
 import com.secura.repository.UserRepository;
 import com.secura.dto.LoginResponse;
+import com.secura.exception.PasswordHashingOverloadedException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +17,13 @@ public class AuthenticationService {
     private UserRepository userRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashing;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PresenceStore presenceStore;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationService.class);
 
@@ -31,26 +37,27 @@ public class AuthenticationService {
         }
 
         return userRepository.findByUsername(username)
-                .flatMap(user -> {
-                    if (passwordEncoder.matches(password, user.getPassword())) {
-                        // Update user online status
-                        user.setOnline(true);
-                        user.setLastSeen(System.currentTimeMillis());
-
-                        return userRepository.save(user)
-                                .map(savedUser -> {
-                                    logger.info("Successful login for user: {}", savedUser.getUsername());
-                                    return new LoginResponse(true, "Login successful", savedUser.getUsername());
-                                });
-                    } else {
-                        logger.warn("Failed login attempt for user: {}", user.getUsername());
-                        return Mono.just(new LoginResponse(false, "Invalid username or password"));
-                    }
-                })
+                .flatMap(user -> passwordHashing.matches(password, user.getPassword())
+                        .flatMap(matched -> {
+                            if (matched) {
+                                userService.upgradePasswordHash(user.getUsername(), user.getPassword(), password);
+                                // Online status is persisted write-behind by the presence store
+                                return presenceStore.markOnline(user.getUsername())
+                                        .then(Mono.fromCallable(() -> {
+                                            logger.info("Successful login for user: {}", user.getUsername());
+                                            return new LoginResponse(true, "Login successful", user.getUsername());
+                                        }));
+                            } else {
+                                logger.warn("Failed login attempt for user: {}", user.getUsername());
+                                return Mono.just(new LoginResponse(false, "Invalid username or password"));
+                            }
+                        }))
                 .switchIfEmpty(Mono.fromCallable(() -> {
                     logger.warn("Login attempt with non-existent username: {}", username);
                     return new LoginResponse(false, "Invalid username or password");
                 }))
+                .onErrorResume(PasswordHashingOverloadedException.class,
+                        throwable -> Mono.just(new LoginResponse(false, throwable.getMessage())))
                 .onErrorResume(throwable -> {
                     logger.error("Error during authentication", throwable);
                     return Mono.just(new LoginResponse(false, "Authentication failed"));
@@ -67,12 +74,6 @@ public class AuthenticationService {
     }
 
     public Mono<Void> setUserOffline(String username) {
-        return userRepository.findByUsername(username)
-                .flatMap(user -> {
-                    user.setOnline(false);
-                    user.setLastSeen(System.currentTimeMillis());
-                    return userRepository.save(user);
-                })
-                .then();
+        return presenceStore.markOffline(username);
     }
 }
@@ -0,0 +1,121 @@
+package com.secura.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the address of the client behind a request.
+ * <p>
+ * X-Forwarded-For is only read when the connection comes from one of
+ * {@code secura.http.trusted-proxies} (addresses or CIDR ranges). The header is then walked
+ * from the right, skipping trusted hops, so entries a client prepends itself are never used.
+ * With no trusted proxies configured the socket address is used as is.
+ */
+@Component
+public class ClientAddressResolver {
+
+    static final String UNKNOWN = "unknown";
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(?:\\.\\d{1,3}){3}");
+
+    private record Range(byte[] network, int prefix) {
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int full = prefix / 8;
+            for (int i = 0; i < full; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = prefix % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - rest);
+            return (bytes[full] & mask) == (network[full] & mask);
+        }
+    }
+
+    private final List<Range> trustedProxies;
+
+    public ClientAddressResolver(@Value("${secura.http.trusted-proxies:}") List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(entry -> !entry.isEmpty())
+                .map(ClientAddressResolver::parseRange)
+                .toList();
+    }
+
+    public String resolve(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return UNKNOWN;
+        }
+        InetAddress peer = remoteAddress.getAddress();
+        if (!isTrusted(peer)) {
+            return peer.getHostAddress();
+        }
+
+        List<String> forwarded = request.getHeaders().getValuesAsList("X-Forwarded-For");
+        for (int i = forwarded.size() - 1; i >= 0; i--) {
+            InetAddress hop = parseAddress(forwarded.get(i).trim());
+            if (hop == null) {
+                // Anything left of an unparseable hop cannot be attributed
+                break;
+            }
+            if (!isTrusted(hop)) {
+                return hop.getHostAddress();
+            }
+            peer = hop;
+        }
+        return peer.getHostAddress();
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        for (Range range : trustedProxies) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Range parseRange(String entry) {
+        int slash = entry.indexOf('/');
+        InetAddress network = parseAddress(slash < 0 ? entry : entry.substring(0, slash));
+        if (network == null) {
+            throw new IllegalArgumentException("Invalid trusted proxy: " + entry);
+        }
+        int bits = network.getAddress().length * 8;
+        int prefix = slash < 0 ? bits : Integer.parseInt(entry.substring(slash + 1));
+        if (prefix < 0 || prefix > bits) {
+            throw new IllegalArgumentException("Invalid trusted proxy prefix: " + entry);
+        }
+        return new Range(network.getAddress(), prefix);
+    }
+
+    // Literal addresses only, so a header value never triggers a DNS lookup
+    private static InetAddress parseAddress(String value) {
+        if (value.startsWith("[") && value.endsWith("]")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        if (value.indexOf(':') < 0 && !IPV4.matcher(value).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(value);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.secura.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes outbound WebSocket frames to whichever node holds the recipient's session.
+ * <p>
+ * Every node keeps its own sessions in {@code userOutboundQueues} and registers them in a
+ * shared Redis hash (username -> node id). Frames for users connected elsewhere are
+ * published on the owning node's channel.
+ * <p>
+ * Each node refreshes a heartbeat key every {@code secura.cluster.heartbeat-interval}. An
+ * entry whose node has no heartbeat (it crashed without unregistering) counts as offline
+ * and is removed when it is next looked up. Entries are only ever removed by a
+ * compare-and-delete on the node id, so a node never drops a route another node took over.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterMessageRouter {
+
+    private static final String SESSION_REGISTRY_KEY = "secura:sessions";
+    private static final String NODE_CHANNEL_PREFIX = "secura:node:";
+    private static final String HEARTBEAT_KEY_PREFIX = "secura:node:alive:";
+
+    // KEYS: registry. ARGV: username, node id. Removes the entry only if that node still owns it.
+    private static final RedisScript<Long> UNREGISTER = RedisScript.of("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then
+              return redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: registry. ARGV: username, heartbeat key prefix. Returns the owning node if it is
+    // alive; an entry left by a dead node is removed and nothing is returned.
+    private static final RedisScript<String> ROUTE = RedisScript.of("""
+            local node = redis.call('HGET', KEYS[1], ARGV[1])
+            if not node then
+              return false
+            end
+            if redis.call('EXISTS', ARGV[2] .. node) == 1 then
+              return node
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            return false
+            """, String.class);
+
+    private final ClusterNode clusterNode;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+    private final Map<String, OutboundQueue> userOutboundQueues;
+
+    @Value("${secura.cluster.heartbeat-interval:10s}")
+    private Duration heartbeatInterval;
+
+    @Value("${secura.cluster.heartbeat-ttl:30s}")
+    private Duration heartbeatTtl;
+
+    private Disposable subscription;
+    private Disposable heartbeat;
+
+    @PostConstruct
+    public void subscribe() {
+        ChannelTopic nodeTopic = ChannelTopic.of(NODE_CHANNEL_PREFIX + clusterNode.getId());
+
+        heartbeat = Flux.interval(Duration.ZERO, heartbeatInterval)
+                .onBackpressureDrop()
+                .concatMap(unused -> redisTemplate.opsForValue()
+                        .set(HEARTBEAT_KEY_PREFIX + clusterNode.getId(), "1", heartbeatTtl)
+                        .onErrorResume(error -> {
+                            log.warn("Failed to refresh node heartbeat: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+
+        subscription = listenerContainer.receive(nodeTopic)
+                .subscribe(message -> onDirected(message.getMessage()),
+                        error -> log.error("Cluster routing subscription failed", error));
+
+        log.info("Cluster message router started for node {}", clusterNode.getId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (heartbeat != null) {
+            heartbeat.dispose();
+        }
+    }
+
+    /**
+     * Records that {@code username} is connected to this node.
+     */
+    public Mono<Void> register(String username) {
+        return redisTemplate.opsForHash()
+                .put(SESSION_REGISTRY_KEY, username, clusterNode.getId())
+                .then();
+    }
+
+    /**
+     * Removes the registry entry for {@code username}, unless another node has taken it over.
+     */
+    public Mono<Void> unregister(String username) {
+        return unregister(username, clusterNode.getId());
+    }
+
+    public Mono<Boolean> isOnline(String username) {
+        if (userOutboundQueues.containsKey(username)) {
+            return Mono.just(true);
+        }
+        return remoteOwner(username).hasElement();
+    }
+
+    /**
+     * Delivers a serialized frame to {@code username} on whichever node owns the session.
+     *
+     * @return true if the frame was handed to a local queue or to a listening remote node
+     */
+    public Mono<Boolean> deliver(String username, byte[] frame) {
+        OutboundQueue localQueue = userOutboundQueues.get(username);
+        if (localQueue != null) {
+            return Mono.just(localQueue.offerMessage(frame));
+        }
+
+        return remoteOwner(username)
+                .flatMap(nodeId -> redisTemplate
+                        .convertAndSend(NODE_CHANNEL_PREFIX + nodeId,
+                                username + '\n' + new String(frame, StandardCharsets.UTF_8))
+                        .flatMap(receivers -> {
+                            if (receivers > 0) {
+                                return Mono.just(true);
+                            }
+                            // Owning node is gone; drop the stale registry entry
+                            log.warn("Node {} holding session for {} is not listening", nodeId, username);
+                            return unregister(username, nodeId).thenReturn(false);
+                        }))
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<Void> unregister(String username, String nodeId) {
+        return redisTemplate.execute(UNREGISTER, List.of(SESSION_REGISTRY_KEY), List.of(username, nodeId))
+                .then();
+    }
+
+    // The live node holding username's session, if it is not this one. An entry naming this
+    // node without a local queue is left over from before a restart with the same node id.
+    private Mono<String> remoteOwner(String username) {
+        return redisTemplate.execute(ROUTE, List.of(SESSION_REGISTRY_KEY), List.of(username, HEARTBEAT_KEY_PREFIX))
+                .next()
+                .flatMap(nodeId -> {
+                    if (!nodeId.equals(clusterNode.getId())) {
+                        return Mono.just(nodeId);
+                    }
+                    return userOutboundQueues.containsKey(username)
+                            ? Mono.<String>empty()
+                            : unregister(username, nodeId).then(Mono.<String>empty());
+                });
+    }
+
+    private void onDirected(String envelope) {
+        int separator = envelope.indexOf('\n');
+        if (separator < 0) {
+            log.warn("Dropping malformed routed frame");
+            return;
+        }
+
+        String username = envelope.substring(0, separator);
+        OutboundQueue queue = userOutboundQueues.get(username);
+        if (queue != null) {
+            queue.offerMessage(envelope.substring(separator + 1).getBytes(StandardCharsets.UTF_8));
+        } else {
+            log.warn("Routed frame for {} arrived but the user is no longer connected here", username);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.secura.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Identity of this backend instance within the cluster.
+ * Used to address per-node Redis channels and to tag ownership of sessions.
+ */
+@Component
+@Getter
+public class ClusterNode {
+
+    private final String id;
+
+    public ClusterNode(@Value("${secura.cluster.node-id:}") String configuredId) {
+        this.id = (configuredId == null || configuredId.isBlank())
+                ? UUID.randomUUID().toString()
+                : configuredId;
+    }
+}
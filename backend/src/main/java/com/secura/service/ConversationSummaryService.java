@@ -0,0 +1,175 @@
+package com.secura.service;
+
+import com.secura.entity.ConversationSummary;
+import com.secura.repository.ConversationSummaryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Incremental conversation summaries.
+ * <p>
+ * With a conversation id, the stored rolling summary is extended with only the messages
+ * after its watermark; a thread that does not extend the stored one is summarized from
+ * scratch. Inputs longer than {@code secura.llm.summary.chunk-chars} are summarized in
+ * chunks (map) and the partial summaries merged (reduce), recursively if needed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSummaryService {
+
+    private final AssistantService assistantService;
+    private final ConversationSummaryRepository summaryRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${secura.llm.summary.chunk-chars:12000}")
+    private int chunkChars;
+
+    @Value("${secura.llm.summary.map-concurrency:4}")
+    private int mapConcurrency;
+
+    /**
+     * Summarizes {@code messages}, reusing the stored summary for {@code conversationId} if any.
+     */
+    public Mono<String> summarize(String conversationId, List<Map<String, String>> messages) {
+        if (conversationId == null || conversationId.isBlank()) {
+            record("full", messages.size());
+            return summarizeChunked(null, messages);
+        }
+
+        return summaryRepository.findById(conversationId)
+                .filter(stored -> extendsStored(stored, messages))
+                .flatMap(stored -> {
+                    List<Map<String, String>> delta = messages.subList(stored.getMessageCount(), messages.size());
+                    if (delta.isEmpty()) {
+                        record("unchanged", 0);
+                        return Mono.just(stored.getSummary());
+                    }
+                    record("delta", delta.size());
+                    return summarizeChunked(stored.getSummary(), delta)
+                            .flatMap(summary -> save(conversationId, summary, messages));
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    record("full", messages.size());
+                    return summarizeChunked(null, messages)
+                            .flatMap(summary -> save(conversationId, summary, messages));
+                }));
+    }
+
+    private boolean extendsStored(ConversationSummary stored, List<Map<String, String>> messages) {
+        Integer count = stored.getMessageCount();
+        return count != null && count > 0 && count <= messages.size()
+                && fingerprint(messages.get(count - 1)).equals(stored.getLastMessageFingerprint());
+    }
+
+    private Mono<String> summarizeChunked(String previousSummary, List<Map<String, String>> messages) {
+        List<String> lines = new ArrayList<>(messages.size());
+        for (Map<String, String> msg : messages) {
+            lines.add(AssistantService.transcriptLine(msg));
+        }
+        List<String> chunks = chunk(lines);
+
+        if (chunks.size() == 1) {
+            return previousSummary == null
+                    ? assistantService.summarizeTranscript(chunks.get(0))
+                    : assistantService.extendSummary(previousSummary, chunks.get(0));
+        }
+
+        log.debug("Summarizing {} messages in {} chunks", messages.size(), chunks.size());
+        return Flux.fromIterable(chunks)
+                .flatMapSequential(assistantService::summarizeTranscript, mapConcurrency)
+                .collectList()
+                .flatMap(parts -> reduce(previousSummary, parts));
+    }
+
+    private Mono<String> reduce(String previousSummary, List<String> parts) {
+        List<String> groups = chunk(parts.stream().map(part -> part + "\n\n").toList());
+        // Stop splitting once a pass no longer shrinks the input
+        if (groups.size() == 1 || groups.size() == parts.size()) {
+            return assistantService.mergeSummaries(previousSummary, String.join("", groups));
+        }
+        return Flux.fromIterable(groups)
+                .flatMapSequential(group -> assistantService.mergeSummaries(null, group), mapConcurrency)
+                .collectList()
+                .flatMap(merged -> reduce(previousSummary, merged));
+    }
+
+    /**
+     * Packs consecutive pieces into blocks of at most {@code chunkChars} characters
+     * (a single oversized piece forms its own block).
+     */
+    private List<String> chunk(List<String> pieces) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String piece : pieces) {
+            if (current.length() > 0 && current.length() + piece.length() > chunkChars) {
+                chunks.add(current.toString());
+                current.setLength(0);
+            }
+            current.append(piece);
+        }
+        if (current.length() > 0 || chunks.isEmpty()) {
+            chunks.add(current.toString());
+        }
+        return chunks;
+    }
+
+    private Mono<String> save(String conversationId, String summary, List<Map<String, String>> messages) {
+        ConversationSummary stored = new ConversationSummary(
+                conversationId,
+                summary,
+                messages.size(),
+                fingerprint(messages.get(messages.size() - 1)),
+                Instant.now());
+        return summaryRepository.save(stored)
+                .thenReturn(summary)
+                .onErrorResume(error -> {
+                    log.error("Failed to store summary for conversation {}", conversationId, error);
+                    return Mono.just(summary);
+                });
+    }
+
+    private void record(String mode, int messageCount) {
+        Counter.builder("secura.llm.summary.requests")
+                .description("Summary requests by how much of the conversation was summarized")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+        DistributionSummary.builder("secura.llm.summary.messages")
+                .description("Messages sent to the LLM per summary request")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(messageCount);
+    }
+
+    private static String fingerprint(Map<String, String> msg) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Objects.toString(msg.get("sender"), "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Objects.toString(msg.get("content"), "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Objects.toString(msg.get("timestamp"), "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.secura.service;
+
+import com.secura.entity.Task;
+import com.secura.repository.TaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Sends deadline notifications exactly once per task.
+ * <p>
+ * Due tasks are claimed with a single {@code updateMulti} that sets {@code notified} and a
+ * unique claim token on pending, not-yet-notified tasks; only the tasks carrying this
+ * claim's token are then loaded and notified. A misfire, retry or second node claiming the
+ * same tasks therefore finds nothing left to notify. Individually fired tasks (Quartz jobs)
+ * are grouped into batches so coinciding deadlines share one claim and one lookup.
+ */
+@Service
+@Slf4j
+public class DeadlineDispatcher {
+
+    private record Firing(String taskId, CompletableFuture<Void> done) {
+    }
+
+    private final TaskRepository taskRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TaskNotificationService notificationService;
+    private final Timer fireLag;
+    private final Counter fired;
+    private final Sinks.Many<Firing> firings = Sinks.many().unicast().onBackpressureBuffer();
+
+    @Value("${secura.deadlines.dispatch-batch-size:500}")
+    private int batchSize;
+
+    @Value("${secura.deadlines.dispatch-window:20ms}")
+    private Duration batchWindow;
+
+    private Disposable pipeline;
+
+    public DeadlineDispatcher(TaskRepository taskRepository,
+                              ReactiveMongoTemplate mongoTemplate,
+                              TaskNotificationService notificationService,
+                              MeterRegistry meterRegistry) {
+        this.taskRepository = taskRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.notificationService = notificationService;
+        this.fireLag = Timer.builder("secura.deadlines.fire.lag")
+                .description("Time between a task's deadline and its notification being dispatched")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fired = Counter.builder("secura.deadlines.fired")
+                .description("Deadline notifications fired")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // One batch at a time bounds concurrent Mongo work when many deadlines coincide
+        pipeline = firings.asFlux()
+                .bufferTimeout(batchSize, batchWindow)
+                .concatMap(batch -> dispatch(batch.stream().map(Firing::taskId).toList())
+                        .doOnSuccess(unused -> batch.forEach(firing -> firing.done().complete(null)))
+                        .onErrorResume(error -> {
+                            log.error("Failed to dispatch {} task deadlines", batch.size(), error);
+                            batch.forEach(firing -> firing.done().completeExceptionally(error));
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        firings.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    /**
+     * Queues one fired task; completes once the batch it joined has been dispatched.
+     */
+    public Mono<Void> submit(String taskId) {
+        return Mono.defer(() -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            firings.emitNext(new Firing(taskId, done), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            return Mono.fromFuture(done);
+        });
+    }
+
+    /**
+     * Claims and notifies the given tasks with one update and one {@code findAllById}.
+     */
+    public Mono<Void> dispatch(Collection<String> taskIds) {
+        if (taskIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return claimAndNotify(Criteria.where("id").in(taskIds),
+                token -> taskRepository.findAllById(taskIds)
+                        .filter(task -> token.equals(task.getNotifiedBy()))
+                        .collectList());
+    }
+
+    /**
+     * Claims and notifies every pending task with a deadline in [from, to).
+     */
+    public Mono<Void> dispatchRange(Instant from, Instant to) {
+        Criteria range = Criteria.where("deadline").gte(from).lt(to);
+        // Repeats the range so the lookup uses status_deadline_id; notified_by is not indexed
+        return claimAndNotify(range,
+                token -> mongoTemplate.find(Query.query(new Criteria().andOperator(
+                                range,
+                                Criteria.where("status").is(Task.Status.PENDING),
+                                Criteria.where("notified_by").is(token))), Task.class)
+                        .collectList());
+    }
+
+    // If loading or notifying fails the claim is released, so a retry can claim the tasks again.
+    // Notifications sent before the failure may then be repeated; that beats losing them.
+    private Mono<Void> claimAndNotify(Criteria scope, Function<String, Mono<List<Task>>> loadClaimed) {
+        return claim(scope)
+                .flatMap(token -> loadClaimed.apply(token)
+                        .flatMap(this::notify)
+                        .onErrorResume(error -> releaseClaim(scope, token).then(Mono.error(error))));
+    }
+
+    private Mono<Void> releaseClaim(Criteria scope, String token) {
+        Query query = Query.query(new Criteria().andOperator(scope, Criteria.where("notified_by").is(token)));
+        Update update = new Update()
+                .unset("notified")
+                .unset("notified_at")
+                .unset("notified_by");
+        return mongoTemplate.updateMulti(query, update, Task.class)
+                .doOnNext(result -> log.warn("Released claim on {} task deadlines after a failed dispatch",
+                        result.getModifiedCount()))
+                .onErrorResume(error -> {
+                    log.error("Failed to release deadline claim {}", token, error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Emits the claim token if at least one task was claimed
+    private Mono<String> claim(Criteria scope) {
+        String token = UUID.randomUUID().toString();
+        Query query = Query.query(new Criteria().andOperator(
+                scope,
+                Criteria.where("status").is(Task.Status.PENDING),
+                Criteria.where("notified").ne(true)));
+        Update update = new Update()
+                .set("notified", true)
+                .set("notified_at", Instant.now())
+                .set("notified_by", token);
+
+        return mongoTemplate.updateMulti(query, update, Task.class)
+                .filter(result -> result.getModifiedCount() > 0)
+                .map(result -> token);
+    }
+
+    private Mono<Void> notify(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return Mono.empty();
+        }
+        Instant now = Instant.now();
+        for (Task task : tasks) {
+            if (task.getDeadline() != null) {
+                fireLag.record(Duration.between(task.getDeadline(), now));
+            }
+        }
+        fired.increment(tasks.size());
+        log.info("Dispatching {} task deadline notifications", tasks.size());
+        return notificationService.sendDeadlineNotifications(tasks);
+    }
+}
@@ -0,0 +1,20 @@
+package com.secura.service;
+
+import com.secura.entity.Task;
+
+import java.util.List;
+
+/**
+ * Schedules deadline notifications for tasks. The implementation is chosen with
+ * {@code secura.deadlines.scheduler}: {@code wheel} (default) or {@code quartz}.
+ * There is no cancel: a task that is no longer pending when its deadline fires is
+ * skipped by {@link DeadlineDispatcher}'s claim.
+ */
+public interface DeadlineScheduler {
+
+    void schedule(Task task);
+
+    default void scheduleAll(List<Task> tasks) {
+        tasks.forEach(this::schedule);
+    }
+}
@@ -0,0 +1,40 @@
+package com.secura.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes outbound WebSocket frames as compact UTF-8 JSON.
+ * <p>
+ * Frames are encoded once and the resulting bytes are shared by every queue they are
+ * offered to; each session wraps them in a {@code DataBuffer} without copying.
+ * The shared {@link ObjectMapper} pretty-prints, which is not wanted on the wire.
+ */
+@Component
+public class FrameEncoder {
+
+    private final ObjectWriter writer;
+
+    public FrameEncoder(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    public byte[] encode(Object frame) {
+        try {
+            return writer.writeValueAsBytes(frame);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to encode frame", e);
+        }
+    }
+
+    public String encodeToString(Object frame) {
+        try {
+            return writer.writeValueAsString(frame);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to encode frame", e);
+        }
+    }
+}
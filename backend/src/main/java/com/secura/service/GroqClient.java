@@ -0,0 +1,184 @@
+package com.secura.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secura.dto.LLMResponseDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Calls Groq's OpenAI-compatible chat completions API through the dedicated
+ * {@code groqWebClient}, inside {@link LlmBulkhead}, retrying 429 and 5xx responses
+ * with jittered exponential backoff.
+ */
+@Component
+@Slf4j
+public class GroqClient {
+
+    private static final String COMPLETIONS_URL = "https://api.groq.com/openai/v1/chat/completions";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final LlmBulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${groq.api.key}")
+    private String groqApiKey;
+
+    @Value("${secura.llm.retry.max-attempts:2}")
+    private int maxRetries;
+
+    @Value("${secura.llm.retry.min-backoff:200ms}")
+    private Duration minBackoff;
+
+    @Value("${secura.llm.retry.max-backoff:2s}")
+    private Duration maxBackoff;
+
+    public GroqClient(WebClient groqWebClient, LlmBulkhead bulkhead, MeterRegistry meterRegistry,
+                      ObjectMapper objectMapper) {
+        this.webClient = groqWebClient;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Sends a chat completion request and returns the first choice's content ("" if none).
+     *
+     * @param endpoint name of the calling endpoint, used to tag latency metrics
+     */
+    public Mono<String> complete(String endpoint, Map<String, Object> body) {
+        Mono<String> call = webClient.post()
+                .uri(COMPLETIONS_URL)
+                .header("Authorization", "Bearer " + groqApiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(LLMResponseDTO.class)
+                .doOnNext(resp -> recordUsage(endpoint, resp.getUsage()))
+                .map(resp -> resp.getChoices().stream()
+                        .findFirst()
+                        .map(choice -> choice.getMessage().getContent())
+                        .orElse(""))
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(0.5)
+                        .filter(GroqClient::isRetryable)
+                        .doBeforeRetry(signal -> log.warn("Retrying Groq call for {} (attempt {}): {}",
+                                endpoint, signal.totalRetries() + 1, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return bulkhead.execute(call)
+                    .doOnSuccess(unused -> sample.stop(timer(endpoint, "success")))
+                    .doOnError(error -> sample.stop(timer(endpoint, error.getClass().getSimpleName())));
+        });
+    }
+
+    /**
+     * Requests a streamed completion ({@code stream: true}) and emits content deltas as they
+     * arrive. Not retried: a partially forwarded stream cannot be replayed.
+     */
+    public Flux<String> stream(String endpoint, Map<String, Object> body) {
+        Map<String, Object> streamingBody = new HashMap<>(body);
+        streamingBody.put("stream", true);
+
+        Flux<String> call = webClient.post()
+                .uri(COMPLETIONS_URL)
+                .header("Authorization", "Bearer " + groqApiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(streamingBody)
+                .retrieve()
+                .bodyToFlux(SSE_TYPE)
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data))
+                .map(this::deltaContent)
+                .filter(token -> !token.isEmpty());
+
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Timer.Sample firstToken = Timer.start(meterRegistry);
+            AtomicBoolean first = new AtomicBoolean(true);
+            String streamEndpoint = endpoint + "_stream";
+            return bulkhead.executeMany(call)
+                    .doOnNext(token -> {
+                        if (first.compareAndSet(true, false)) {
+                            firstToken.stop(Timer.builder("secura.llm.first-token")
+                                    .description("Time from request to first streamed token")
+                                    .tag("endpoint", streamEndpoint)
+                                    .publishPercentileHistogram()
+                                    .register(meterRegistry));
+                        }
+                    })
+                    .doOnComplete(() -> sample.stop(timer(streamEndpoint, "success")))
+                    .doOnError(error -> sample.stop(timer(streamEndpoint, error.getClass().getSimpleName())));
+        });
+    }
+
+    private String deltaContent(String chunk) {
+        try {
+            return objectMapper.readTree(chunk)
+                    .path("choices").path(0)
+                    .path("delta").path("content")
+                    .asText("");
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed Groq stream chunk: {}", e.getMessage());
+            return "";
+        }
+    }
+
+    private void recordUsage(String endpoint, LLMResponseDTO.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            tokens(endpoint, "prompt").record(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            tokens(endpoint, "completion").record(usage.getCompletionTokens());
+        }
+    }
+
+    private DistributionSummary tokens(String endpoint, String kind) {
+        return DistributionSummary.builder("secura.llm.tokens")
+                .description("Tokens per Groq completion as reported by the API")
+                .tag("endpoint", endpoint)
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof WebClientResponseException response
+                && (response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError());
+    }
+
+    private Timer timer(String endpoint, String outcome) {
+        return Timer.builder("secura.llm.requests")
+                .description("Groq call latency including bulkhead wait and retries")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,149 @@
+package com.secura.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel of ids keyed by deadline (epoch millis). Adding and cancelling
+ * are O(1); advancing costs one bucket per elapsed tick plus an occasional cascade from a
+ * coarser level. Level {@code n} has ticks of {@code tickMs * wheelSize^n}; levels are
+ * created as far-off deadlines need them.
+ * <p>
+ * Not thread-safe on its own; callers synchronize.
+ */
+final class HierarchicalTimingWheel {
+
+    private final class Level {
+        final long tick;
+        final long interval;
+        final Set<String>[] buckets;
+        long currentTime;
+        Level overflow;
+
+        @SuppressWarnings("unchecked")
+        Level(long tick, long startMs) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.buckets = new Set[wheelSize];
+            this.currentTime = startMs - Math.floorMod(startMs, tick);
+        }
+
+        Set<String> bucket(long time) {
+            int index = (int) Math.floorMod(time / tick, (long) wheelSize);
+            if (buckets[index] == null) {
+                buckets[index] = new HashSet<>();
+            }
+            return buckets[index];
+        }
+
+        Level overflow() {
+            if (overflow == null) {
+                overflow = new Level(interval, root.currentTime);
+            }
+            return overflow;
+        }
+    }
+
+    private final int wheelSize;
+    private final Level root;
+    private final Map<String, Long> deadlines = new HashMap<>();
+    private final Map<String, Set<String>> slots = new HashMap<>();
+    private final Set<String> expired = new LinkedHashSet<>();
+
+    HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.wheelSize = wheelSize;
+        this.root = new Level(tickMs, startMs);
+    }
+
+    /**
+     * Adds {@code id}, replacing any earlier deadline for it. Deadlines already in the past
+     * are returned by the next {@link #advance}.
+     */
+    void add(String id, long deadlineMs) {
+        remove(id);
+        deadlines.put(id, deadlineMs);
+        place(id, deadlineMs);
+    }
+
+    boolean remove(String id) {
+        Set<String> slot = slots.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        slot.remove(id);
+        deadlines.remove(id);
+        return true;
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMs} and returns the ids (with their deadlines)
+     * whose tick has fully elapsed, removing them from the wheel.
+     */
+    Map<String, Long> advance(long nowMs) {
+        while (root.currentTime + root.tick <= nowMs) {
+            long elapsed = root.currentTime;
+            root.currentTime += root.tick;
+            drain(root, elapsed);
+
+            // Entering a new window of a coarser level moves its bucket down a level
+            List<Level> entered = new ArrayList<>();
+            for (Level level = root.overflow; level != null; level = level.overflow) {
+                long start = root.currentTime - Math.floorMod(root.currentTime, level.tick);
+                if (start == level.currentTime) {
+                    break;
+                }
+                level.currentTime = start;
+                entered.add(level);
+            }
+            for (int i = entered.size() - 1; i >= 0; i--) {
+                drain(entered.get(i), entered.get(i).currentTime);
+            }
+        }
+
+        Map<String, Long> due = new HashMap<>();
+        for (String id : expired) {
+            slots.remove(id);
+            due.put(id, deadlines.remove(id));
+        }
+        expired.clear();
+        return due;
+    }
+
+    private void drain(Level level, long time) {
+        Set<String> bucket = level.bucket(time);
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(bucket);
+        bucket.clear();
+        for (String id : ids) {
+            slots.remove(id);
+            place(id, deadlines.get(id));
+        }
+    }
+
+    private void place(String id, long deadlineMs) {
+        if (deadlineMs < root.currentTime) {
+            expired.add(id);
+            slots.put(id, expired);
+            return;
+        }
+
+        Level level = root;
+        while (deadlineMs >= level.currentTime + level.interval) {
+            level = level.overflow();
+        }
+        Set<String> bucket = level.bucket(deadlineMs);
+        bucket.add(id);
+        slots.put(id, bucket);
+    }
+}
@@ -0,0 +1,114 @@
+package com.secura.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secura.dto.InboundFrame;
+import com.secura.exception.InvalidFrameException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes inbound WebSocket frames straight from the payload buffer with Jackson's
+ * streaming parser, picking out the known fields without building a String or a
+ * {@code JsonNode} tree. Unknown fields are skipped.
+ */
+@Component
+public class InboundFrameDecoder {
+
+    private final JsonFactory jsonFactory;
+    private final int maxFrameBytes;
+
+    public InboundFrameDecoder(ObjectMapper objectMapper,
+                               @Value("${secura.ws.inbound.max-frame-bytes:65536}") int maxFrameBytes) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    /**
+     * Decodes {@code payload}. Must be called before the payload buffer is released.
+     *
+     * @throws InvalidFrameException if the frame is oversized, malformed or has no type
+     */
+    public InboundFrame decode(DataBuffer payload) {
+        if (payload.readableByteCount() > maxFrameBytes) {
+            throw new InvalidFrameException("Frame exceeds " + maxFrameBytes + " bytes");
+        }
+
+        InboundFrame frame = new InboundFrame();
+        try (InputStream in = payload.asInputStream(); JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidFrameException("Frame must be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "type" -> frame.setType(readText(parser));
+                    case "username" -> frame.setUsername(readText(parser));
+                    case "recipient" -> frame.setRecipient(readText(parser));
+                    case "content" -> frame.setContent(readText(parser));
+                    case "tempId" -> frame.setTempId(readText(parser));
+                    case "messageId" -> frame.setMessageId(readText(parser));
+                    case "messageIds" -> frame.setMessageIds(readTextArray(parser));
+                    case "online" -> frame.setOnline(parser.currentToken().isBoolean()
+                            ? parser.getBooleanValue()
+                            : Boolean.valueOf(readText(parser)));
+                    case "usernames" -> frame.setUsernames(readTextArray(parser));
+                    case "before" -> frame.setBefore(readText(parser));
+                    case "beforeId" -> frame.setBeforeId(readText(parser));
+                    case "limit" -> frame.setLimit(readInteger(parser));
+                    case "requestId" -> frame.setRequestId(readText(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new InvalidFrameException("Malformed frame", e);
+        }
+
+        if (frame.getType() == null) {
+            throw new InvalidFrameException("Frame has no type");
+        }
+        return frame;
+    }
+
+    private static String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private static Integer readInteger(JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getIntValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static List<String> readTextArray(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = readText(parser);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+}
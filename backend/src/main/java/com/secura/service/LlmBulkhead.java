@@ -0,0 +1,114 @@
+package com.secura.service;
+
+import com.secura.exception.LlmOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Limits concurrent LLM calls. Up to {@code secura.llm.bulkhead.max-concurrent} calls run at
+ * once and up to {@code max-queued} wait (at most {@code max-wait}) for a permit; anything
+ * beyond that fails fast with {@link LlmOverloadedException} instead of piling up.
+ */
+@Component
+public class LlmBulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final Deque<Sinks.Empty<Void>> waiters = new ArrayDeque<>();
+    private final Counter rejected;
+    private int active;
+
+    public LlmBulkhead(MeterRegistry meterRegistry,
+                       @Value("${secura.llm.bulkhead.max-concurrent:16}") int maxConcurrent,
+                       @Value("${secura.llm.bulkhead.max-queued:32}") int maxQueued,
+                       @Value("${secura.llm.bulkhead.max-wait:2s}") Duration maxWait) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.rejected = Counter.builder("secura.llm.bulkhead.rejected")
+                .description("LLM calls rejected because the bulkhead was full")
+                .register(meterRegistry);
+        Gauge.builder("secura.llm.bulkhead.active", this, bulkhead -> bulkhead.snapshot(false))
+                .description("LLM calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("secura.llm.bulkhead.queued", this, bulkhead -> bulkhead.snapshot(true))
+                .description("LLM calls waiting for a permit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to {@code call} once a permit is available and releases it when the call terminates.
+     */
+    public <T> Mono<T> execute(Mono<T> call) {
+        return Mono.defer(() -> acquire().then(Mono.defer(() -> call.doFinally(signal -> release()))));
+    }
+
+    /**
+     * Streaming variant of {@link #execute(Mono)}; the permit is held until the stream terminates.
+     */
+    public <T> Flux<T> executeMany(Flux<T> call) {
+        return Flux.defer(() -> acquire().thenMany(Flux.defer(() -> call.doFinally(signal -> release()))));
+    }
+
+    private Mono<Void> acquire() {
+        Sinks.Empty<Void> permit;
+        synchronized (this) {
+            if (active < maxConcurrent) {
+                active++;
+                return Mono.empty();
+            }
+            if (waiters.size() >= maxQueued) {
+                rejected.increment();
+                return Mono.error(new LlmOverloadedException("LLM service is busy, try again shortly"));
+            }
+            permit = Sinks.empty();
+            waiters.addLast(permit);
+        }
+        return permit.asMono()
+                .timeout(maxWait, Mono.error(() -> {
+                    rejected.increment();
+                    return new LlmOverloadedException("Timed out waiting for the LLM service");
+                }))
+                .doOnCancel(() -> abandon(permit))
+                .doOnError(error -> abandon(permit));
+    }
+
+    private void release() {
+        Sinks.Empty<Void> next;
+        synchronized (this) {
+            next = waiters.pollFirst();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        // The permit passes straight to the next waiter
+        next.tryEmitEmpty();
+    }
+
+    private void abandon(Sinks.Empty<Void> permit) {
+        boolean wasWaiting;
+        synchronized (this) {
+            wasWaiting = waiters.remove(permit);
+        }
+        if (!wasWaiting) {
+            // Permit was handed over just before the waiter gave up
+            release();
+        }
+    }
+
+    private synchronized double snapshot(boolean queued) {
+        return queued ? waiters.size() : active;
+    }
+}
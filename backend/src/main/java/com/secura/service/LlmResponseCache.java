@@ -0,0 +1,173 @@
+package com.secura.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches LLM completions by a SHA-256 hash of the request body.
+ * <p>
+ * Lookups go to a local Caffeine cache, then (if {@code secura.llm.cache.redis-enabled})
+ * to Redis, then upstream. Concurrent misses for the same body share one upstream call.
+ */
+@Component
+@Slf4j
+public class LlmResponseCache {
+
+    private static final String REDIS_KEY_PREFIX = "secura:llm:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectWriter keyWriter;
+    private final Cache<String, String> local;
+    private final Map<String, Mono<String>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final boolean redisEnabled;
+
+    private final Counter hits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public LlmResponseCache(ReactiveStringRedisTemplate redisTemplate,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${secura.llm.cache.max-size:1000}") long maxSize,
+                            @Value("${secura.llm.cache.ttl:10m}") Duration ttl,
+                            @Value("${secura.llm.cache.redis-enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisTemplate;
+        // Sorted keys so equal bodies hash the same regardless of Map iteration order
+        this.keyWriter = objectMapper.writer()
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .without(SerializationFeature.INDENT_OUTPUT);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.ttl = ttl;
+        this.redisEnabled = redisEnabled;
+
+        this.hits = lookups(meterRegistry, "hit");
+        this.redisHits = lookups(meterRegistry, "redis_hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.coalesced = lookups(meterRegistry, "coalesced");
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("secura.llm.cache.lookups")
+                .description("LLM response cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached completion for {@code body}, or calls {@code loader} once for all
+     * concurrent callers with the same body. Blank completions are not cached.
+     */
+    public Mono<String> get(Map<String, Object> body, Function<Map<String, Object>, Mono<String>> loader) {
+        String key = hash(body);
+
+        String cached = local.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return Mono.just(cached);
+        }
+
+        boolean[] leader = {false};
+        Mono<String> shared = inFlight.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            return fromRedis(k)
+                    .switchIfEmpty(Mono.defer(() -> {
+                        misses.increment();
+                        return loader.apply(body).flatMap(response -> store(k, response));
+                    }))
+                    .doFinally(signal -> inFlight.remove(k))
+                    .cache();
+        });
+        if (!leader[0]) {
+            coalesced.increment();
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the cached completion for {@code body} without calling upstream.
+     */
+    public Mono<String> peek(Map<String, Object> body) {
+        return Mono.defer(() -> {
+            String key = hash(body);
+            String cached = local.getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(cached);
+            }
+            return fromRedis(key);
+        });
+    }
+
+    /**
+     * Stores a completion obtained outside {@link #get}, e.g. assembled from a stream.
+     */
+    public Mono<Void> put(Map<String, Object> body, String response) {
+        return Mono.defer(() -> store(hash(body), response)).then();
+    }
+
+    private Mono<String> fromRedis(String key) {
+        if (!redisEnabled) {
+            return Mono.empty();
+        }
+        return redisTemplate.opsForValue()
+                .get(REDIS_KEY_PREFIX + key)
+                .doOnNext(response -> {
+                    redisHits.increment();
+                    local.put(key, response);
+                })
+                .onErrorResume(error -> {
+                    log.warn("LLM cache lookup in Redis failed: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> store(String key, String response) {
+        if (response.isBlank()) {
+            return Mono.just(response);
+        }
+        local.put(key, response);
+        if (!redisEnabled) {
+            return Mono.just(response);
+        }
+        return redisTemplate.opsForValue()
+                .set(REDIS_KEY_PREFIX + key, response, ttl)
+                .onErrorResume(error -> {
+                    log.warn("LLM cache write to Redis failed: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(response);
+    }
+
+    private String hash(Map<String, Object> body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(keyWriter.writeValueAsBytes(body));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Cannot hash LLM request", e);
+        }
+    }
+}
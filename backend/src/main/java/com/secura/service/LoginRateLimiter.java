@@ -0,0 +1,155 @@
+package com.secura.service;
+
+import com.secura.exception.LoginRateLimitedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-user and per-IP token buckets for login attempts, kept in Redis so every node
+ * enforces the same budget.
+ * <p>
+ * Every attempt is charged to its client IP. Password attempts are also charged to the
+ * username alone, however many addresses they come from, and a successful one is refunded,
+ * so only failures use up the user's budget. Token logins skip the user bucket: a valid
+ * token proves an earlier successful login, so a user whose password budget has been spent
+ * by someone else can still reconnect.
+ * <p>
+ * The buckets are checked and charged by one Lua script, so an attempt either consumes a
+ * token from each or from none. If Redis is unavailable, attempts are allowed.
+ */
+@Component
+@Slf4j
+public class LoginRateLimiter {
+
+    static final String USER_KEY_PREFIX = "secura:login:rl:user:";
+    static final String IP_KEY_PREFIX = "secura:login:rl:ip:";
+
+    // KEYS: buckets. ARGV: capacity and refill-per-second for each key, in order.
+    // Returns 0 if allowed, otherwise the milliseconds until every bucket has a token.
+    private static final RedisScript<Long> TOKEN_BUCKETS = RedisScript.of("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local tokens = {}
+            local wait = 0
+            for i = 1, #KEYS do
+              local capacity = tonumber(ARGV[2 * i - 1])
+              local rate = tonumber(ARGV[2 * i]) / 1000
+              local state = redis.call('HMGET', KEYS[i], 'tokens', 'ts')
+              local available = tonumber(state[1]) or capacity
+              local updated = tonumber(state[2]) or now
+              available = math.min(capacity, available + math.max(0, now - updated) * rate)
+              tokens[i] = available
+              if available < 1 then
+                wait = math.max(wait, math.ceil((1 - available) / rate))
+              end
+            end
+            if wait > 0 then
+              return wait
+            end
+            for i = 1, #KEYS do
+              local capacity = tonumber(ARGV[2 * i - 1])
+              local rate = tonumber(ARGV[2 * i]) / 1000
+              redis.call('HSET', KEYS[i], 'tokens', tostring(tokens[i] - 1), 'ts', tostring(now))
+              redis.call('PEXPIRE', KEYS[i], math.ceil(capacity / rate))
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: bucket. ARGV: capacity, refill-per-second. Gives back one token, up to capacity.
+    private static final RedisScript<Long> REFUND = RedisScript.of("""
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            if not state[1] then
+              return 0
+            end
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2]) / 1000
+            local available = tonumber(state[1]) + math.max(0, now - tonumber(state[2])) * rate
+            redis.call('HSET', KEYS[1], 'tokens', tostring(math.min(capacity, available + 1)), 'ts', tostring(now))
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final List<String> userLimit;
+    private final List<String> ipLimit;
+    private final Counter rejected;
+
+    public LoginRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${secura.login.rate-limit.user.capacity:5}") int userCapacity,
+                            @Value("${secura.login.rate-limit.user.refill-per-second:0.1}") double userRefill,
+                            @Value("${secura.login.rate-limit.ip.capacity:50}") int ipCapacity,
+                            @Value("${secura.login.rate-limit.ip.refill-per-second:5}") double ipRefill) {
+        this.redisTemplate = redisTemplate;
+        this.userLimit = List.of(String.valueOf(userCapacity), String.valueOf(userRefill));
+        this.ipLimit = List.of(String.valueOf(ipCapacity), String.valueOf(ipRefill));
+        this.rejected = Counter.builder("secura.login.rate-limited")
+                .description("Login attempts rejected by the per-user or per-IP rate limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Charges a password attempt to {@code username} and {@code ip}; fails with
+     * {@link LoginRateLimitedException} if either budget is exhausted.
+     */
+    public Mono<Void> acquire(String username, String ip) {
+        List<String> args = new ArrayList<>(userLimit);
+        args.addAll(ipLimit);
+        return charge(List.of(userKey(username), ipKey(ip)), args, username);
+    }
+
+    /**
+     * Charges a token attempt to {@code ip} only.
+     */
+    public Mono<Void> acquire(String ip) {
+        return charge(List.of(ipKey(ip)), ipLimit, ip);
+    }
+
+    /**
+     * Returns the token a successful password attempt took from {@code username}.
+     */
+    public Mono<Void> refund(String username) {
+        return redisTemplate.execute(REFUND, List.of(userKey(username)), userLimit)
+                .then()
+                .onErrorResume(error -> {
+                    log.warn("Could not refund login attempt for {}", username, error);
+                    return Mono.empty();
+                });
+    }
+
+    static String userKey(String username) {
+        return USER_KEY_PREFIX + username;
+    }
+
+    static String ipKey(String ip) {
+        return IP_KEY_PREFIX + ip;
+    }
+
+    private Mono<Void> charge(List<String> keys, List<String> args, String subject) {
+        return redisTemplate.execute(TOKEN_BUCKETS, keys, args)
+                .next()
+                .onErrorResume(error -> {
+                    log.warn("Login rate limiter unavailable, allowing attempt for {}", subject, error);
+                    return Mono.just(0L);
+                })
+                .flatMap(waitMillis -> {
+                    if (waitMillis > 0) {
+                        rejected.increment();
+                        return Mono.error(new LoginRateLimitedException("Too many login attempts, try again later",
+                                Duration.ofMillis(waitMillis)));
+                    }
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,80 @@
+package com.secura.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Short-lived login tokens that let a reconnecting client skip the Mongo lookup and BCrypt.
+ * <p>
+ * A token is 256 random bits, handed to the client after a successful login. Redis stores
+ * only its SHA-256 (a slow hash adds nothing for a secret of that entropy), mapped to the
+ * username, for {@code secura.login.token-ttl}. Tokens are single-use: redeeming one
+ * deletes it, and the caller issues a fresh one.
+ */
+@Service
+public class LoginTokenService {
+
+    private static final String TOKEN_KEY_PREFIX = "secura:login:token:";
+    private static final int TOKEN_BYTES = 32;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final SecureRandom random = new SecureRandom();
+    private final Duration ttl;
+    private final Counter redeemed;
+
+    public LoginTokenService(ReactiveStringRedisTemplate redisTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${secura.login.token-ttl:15m}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+        this.redeemed = Counter.builder("secura.login.token.redeemed")
+                .description("Logins that skipped password verification via a login token")
+                .register(meterRegistry);
+    }
+
+    public Mono<String> issue(String username) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        return redisTemplate.opsForValue()
+                .set(TOKEN_KEY_PREFIX + digest(token), username, ttl)
+                .thenReturn(token);
+    }
+
+    /**
+     * Consumes {@code token}; emits true only if it was issued to {@code username} and has not expired.
+     */
+    public Mono<Boolean> redeem(String username, String token) {
+        return redisTemplate.opsForValue()
+                .getAndDelete(TOKEN_KEY_PREFIX + digest(token))
+                .map(owner -> {
+                    boolean valid = owner.equals(username);
+                    if (valid) {
+                        redeemed.increment();
+                    }
+                    return valid;
+                })
+                .defaultIfEmpty(false);
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
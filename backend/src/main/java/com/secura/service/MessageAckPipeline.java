@@ -0,0 +1,137 @@
+package com.secura.service;
+
+import com.secura.entity.Message;
+import com.secura.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Batches message ACKs and replay bookkeeping into bulk Mongo operations.
+ * <p>
+ * ACKed ids are buffered per node for up to {@code secura.messages.ack-window} or
+ * {@code secura.messages.ack-batch-size} ids and deleted with a single query. Replayed
+ * messages are stamped with {@code replayed_at} in bulk so they are not replayed again
+ * until {@code secura.messages.ack-timeout} passes without an ACK.
+ */
+@Service
+@Slf4j
+public class MessageAckPipeline {
+
+    private final MessageRepository messageRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Sinks.Many<String> acks = Sinks.many().unicast().onBackpressureBuffer();
+    private final Counter ackCounter;
+    private final DistributionSummary batchSizes;
+
+    @Value("${secura.messages.ack-window:20ms}")
+    private Duration ackWindow;
+
+    @Value("${secura.messages.ack-batch-size:500}")
+    private int ackBatchSize;
+
+    @Value("${secura.messages.ack-timeout:30s}")
+    private Duration ackTimeout;
+
+    private Disposable pipeline;
+
+    public MessageAckPipeline(MessageRepository messageRepository,
+                              ReactiveMongoTemplate mongoTemplate,
+                              MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.ackCounter = Counter.builder("secura.messages.acks")
+                .description("Message ACKs processed")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("secura.messages.ack.batch.size")
+                .description("Message ids deleted per bulk ACK operation")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        pipeline = acks.asFlux()
+                .bufferTimeout(ackBatchSize, ackWindow)
+                .concatMap(ids -> messageRepository.deleteAllById(ids)
+                        .doOnSuccess(unused -> {
+                            ackCounter.increment(ids.size());
+                            batchSizes.record(ids.size());
+                            log.debug("Deleted {} messages after ACK", ids.size());
+                        })
+                        .onErrorResume(error -> {
+                            log.error("Failed to delete {} ACKed messages", ids.size(), error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Flushes the last partial batch before the subscription completes
+        acks.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    /**
+     * Queues message ids for deletion; returns immediately.
+     */
+    public void acknowledge(Collection<String> messageIds) {
+        for (String id : messageIds) {
+            if (id != null && !id.isBlank()) {
+                acks.emitNext(id, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} messages that should be replayed to {@code recipient} on reconnect,
+     * oldest first. Marking a page replayed excludes it from the next call.
+     */
+    public Flux<Message> findReplayable(String recipient, int limit) {
+        return messageRepository.findReplayableForRecipient(recipient, Instant.now().minus(ackTimeout),
+                PageRequest.of(0, limit));
+    }
+
+    /**
+     * Marks replayed messages as delivered-pending-ACK with one update.
+     */
+    public Mono<Void> markReplayed(List<String> messageIds) {
+        return mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("id").in(messageIds)),
+                        new Update().set("replayed_at", Instant.now()),
+                        Message.class)
+                .then();
+    }
+
+    /**
+     * Makes every unacknowledged message for {@code recipient} replayable again, e.g. after
+     * the session that received the replay disconnected.
+     */
+    public Mono<Void> clearReplayed(String recipient) {
+        return mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("recipient").is(recipient)
+                                .and("delivered").is(false)
+                                .and("replayed_at").ne(null)),
+                        new Update().unset("replayed_at"),
+                        Message.class)
+                .then();
+    }
+}
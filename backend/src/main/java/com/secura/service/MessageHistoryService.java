@@ -0,0 +1,70 @@
+package com.secura.service;
+
+import com.secura.entity.Message;
+import com.secura.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+/**
+ * Keyset-paginated message history (sent and received), newest first.
+ * Pages are cursor-based on (timestamp, id), so cost per page does not grow with inbox size.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageHistoryService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "timestamp")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private final MessageRepository messageRepository;
+
+    @Value("${secura.history.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${secura.history.max-page-size:200}")
+    private int maxPageSize;
+
+    /**
+     * Streams up to {@code count} messages older than the (before, beforeId) cursor.
+     * A missing cursor starts from the newest message; an invalid one is an error.
+     */
+    public Flux<Message> page(String username, Instant before, String beforeId, int count) {
+        Pageable pageable = PageRequest.of(0, count, NEWEST_FIRST);
+
+        if (before == null && beforeId == null) {
+            return messageRepository.findAllMessagesForUser(username, pageable);
+        }
+        if (!isValidCursor(before, beforeId)) {
+            return Flux.error(new IllegalArgumentException("Invalid history cursor"));
+        }
+        return messageRepository.findAllMessagesForUserBefore(username, before, new ObjectId(beforeId), pageable);
+    }
+
+    /**
+     * True if there is no cursor, or both parts are present and {@code beforeId} is an ObjectId.
+     */
+    public boolean isValidCursor(Instant before, String beforeId) {
+        if (before == null && beforeId == null) {
+            return true;
+        }
+        return before != null && beforeId != null && ObjectId.isValid(beforeId);
+    }
+
+    /**
+     * Clamps a client-requested page size to the configured bounds.
+     */
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
@@ -0,0 +1,79 @@
+package com.secura.service;
+
+import com.secura.entity.NotificationOutbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persists notifications for users who are offline so they can be replayed on the next
+ * {@code register}.
+ * <p>
+ * Each user has a single outbox document. Enqueueing is one upsert that pushes onto the
+ * list and trims it to the newest {@code secura.notifications.outbox.max-per-user} entries.
+ * Every read and write addresses the document by {@code _id} (the username). Replay pulls
+ * only the entries that were delivered. A TTL index on {@code expires_at} removes outboxes
+ * that nobody has collected within {@code secura.notifications.outbox.ttl}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationOutboxService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Value("${secura.notifications.outbox.max-per-user:100}")
+    private int maxPerUser;
+
+    @Value("${secura.notifications.outbox.ttl:7d}")
+    private Duration ttl;
+
+    public Mono<Void> enqueue(String username, Map<String, Object> notification) {
+        Update update = new Update()
+                .set("expires_at", Instant.now().plus(ttl));
+        update.push("notifications").slice(-maxPerUser)
+                .each(new NotificationOutbox.Entry(UUID.randomUUID().toString(), notification));
+
+        return mongoTemplate.upsert(Query.query(Criteria.where("_id").is(username)), update, NotificationOutbox.class)
+                .doOnSuccess(unused -> log.debug("Queued notification for offline user {}", username))
+                .then();
+    }
+
+    /**
+     * Up to {@code limit} of the user's queued notifications, oldest first. They stay queued
+     * until {@link #remove} is called for them.
+     */
+    public Mono<List<NotificationOutbox.Entry>> pending(String username, int limit) {
+        return mongoTemplate.findById(username, NotificationOutbox.class)
+                // The TTL monitor runs periodically, so an expired outbox can still be found
+                .filter(outbox -> outbox.getExpiresAt() == null || outbox.getExpiresAt().isAfter(Instant.now()))
+                .mapNotNull(NotificationOutbox::getNotifications)
+                .map(entries -> entries.subList(0, Math.min(limit, entries.size())));
+    }
+
+    /**
+     * Removes delivered entries; entries queued in the meantime are kept.
+     */
+    public Mono<Void> remove(String username, List<String> entryIds) {
+        if (entryIds.isEmpty()) {
+            return Mono.empty();
+        }
+        Update update = new Update()
+                .pull("notifications", new Document("entry_id", new Document("$in", entryIds)));
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(username)), update, NotificationOutbox.class)
+                .then();
+    }
+}
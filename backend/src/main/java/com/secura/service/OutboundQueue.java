@@ -0,0 +1,206 @@
+package com.secura.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded outbound frame queue for a single WebSocket session.
+ * <p>
+ * Chat frames (messages, confirmations, notifications) are always drained before presence
+ * frames and are never dropped; if they alone fill the queue the consumer is disconnected.
+ * Presence frames are shed according to the configured {@link OverflowPolicy}.
+ * Frames are only pulled as fast as the session requests them, so nothing buffers
+ * beyond {@code capacity}. Frames are pre-encoded JSON bytes, see {@link FrameEncoder}.
+ */
+public class OutboundQueue {
+
+    public enum OverflowPolicy {
+        /** Drop the oldest queued presence frame to make room. */
+        DROP_OLDEST,
+        /** Replace a queued presence frame with the same key, otherwise drop the oldest. */
+        COALESCE,
+        /** Disconnect the session as soon as the queue is full. */
+        DISCONNECT
+    }
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final OutboundQueueFactory.Metrics metrics;
+    private final Runnable onEviction;
+
+    private final ArrayDeque<byte[]> messages = new ArrayDeque<>();
+    private final LinkedHashMap<String, byte[]> presence = new LinkedHashMap<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Flux<byte[]> flux;
+
+    private volatile FluxSink<byte[]> sink;
+    private boolean closed;
+    private long presenceSequence;
+
+    OutboundQueue(int capacity, OverflowPolicy overflowPolicy,
+                  OutboundQueueFactory.Metrics metrics, Runnable onEviction) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+        this.onEviction = onEviction;
+        this.flux = Flux.create(this::attach);
+    }
+
+    public Flux<byte[]> asFlux() {
+        return flux;
+    }
+
+    /**
+     * Queues a high-priority frame. Returns false if the session is closed or was evicted.
+     */
+    public boolean offerMessage(byte[] frame) {
+        boolean evicted = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (depth() < capacity || (overflowPolicy != OverflowPolicy.DISCONNECT && shedPresence())) {
+                messages.add(frame);
+            } else {
+                markEvicted();
+                evicted = true;
+            }
+        }
+        if (evicted) {
+            onEviction.run();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * Queues a presence frame. Frames sharing a non-null {@code key} may be coalesced.
+     * Returns false if the frame was dropped.
+     */
+    public boolean offerPresence(String key, byte[] frame) {
+        boolean evicted = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (overflowPolicy == OverflowPolicy.COALESCE && key != null && presence.remove(key) != null) {
+                metrics.dropped("coalesced");
+            } else if (depth() >= capacity) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    markEvicted();
+                    evicted = true;
+                } else if (!shedPresence()) {
+                    // Queue is full of chat frames; the new presence frame is the one to go
+                    metrics.dropped("presence_overflow");
+                    return false;
+                }
+            }
+
+            if (!evicted) {
+                String slot = (overflowPolicy == OverflowPolicy.COALESCE && key != null)
+                        ? key
+                        : "#" + presenceSequence++;
+                presence.put(slot, frame);
+            }
+        }
+        if (evicted) {
+            onEviction.run();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * How many chat frames a backlog replay may queue now while leaving half the capacity
+     * for live traffic: 0 if none, -1 once the session is closed.
+     */
+    public synchronized int replayRoom() {
+        if (closed) {
+            return -1;
+        }
+        return Math.max(0, capacity / 2 - messages.size());
+    }
+
+    public synchronized int depth() {
+        return messages.size() + presence.size();
+    }
+
+    public void complete() {
+        FluxSink<byte[]> current;
+        synchronized (this) {
+            closed = true;
+            messages.clear();
+            presence.clear();
+            current = sink;
+        }
+        if (current != null) {
+            current.complete();
+        }
+    }
+
+    private synchronized void attach(FluxSink<byte[]> sink) {
+        this.sink = sink;
+        sink.onRequest(requested -> drain());
+        sink.onDispose(this::complete);
+    }
+
+    // Caller holds the monitor
+    private boolean shedPresence() {
+        Iterator<byte[]> oldest = presence.values().iterator();
+        if (!oldest.hasNext()) {
+            return false;
+        }
+        oldest.next();
+        oldest.remove();
+        metrics.dropped("presence_overflow");
+        return true;
+    }
+
+    // Caller holds the monitor and runs onEviction after releasing it
+    private void markEvicted() {
+        closed = true;
+        messages.clear();
+        presence.clear();
+        metrics.evicted();
+    }
+
+    private synchronized byte[] poll() {
+        byte[] next = messages.poll();
+        if (next != null) {
+            return next;
+        }
+        Iterator<byte[]> oldest = presence.values().iterator();
+        if (oldest.hasNext()) {
+            next = oldest.next();
+            oldest.remove();
+        }
+        return next;
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            FluxSink<byte[]> current = sink;
+            if (current != null) {
+                while (current.requestedFromDownstream() > 0) {
+                    byte[] next = poll();
+                    if (next == null) {
+                        break;
+                    }
+                    current.next(next);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
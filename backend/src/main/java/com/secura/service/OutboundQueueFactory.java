@@ -0,0 +1,70 @@
+package com.secura.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates per-session {@link OutboundQueue}s with the configured bound and overflow policy,
+ * and publishes queue depth, drop and eviction metrics for them.
+ */
+@Component
+public class OutboundQueueFactory {
+
+    private final int capacity;
+    private final OutboundQueue.OverflowPolicy overflowPolicy;
+    private final Metrics metrics;
+
+    public OutboundQueueFactory(@Value("${secura.ws.outbound.capacity:512}") int capacity,
+                                @Value("${secura.ws.outbound.overflow-policy:DROP_OLDEST}")
+                                OutboundQueue.OverflowPolicy overflowPolicy,
+                                Map<String, OutboundQueue> userOutboundQueues,
+                                MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = new Metrics(meterRegistry);
+
+        Gauge.builder("secura.ws.outbound.depth", userOutboundQueues,
+                        queues -> queues.values().stream().mapToInt(OutboundQueue::depth).sum())
+                .description("Frames queued across all WebSocket sessions on this node")
+                .register(meterRegistry);
+        Gauge.builder("secura.ws.outbound.depth.max", userOutboundQueues,
+                        queues -> queues.values().stream().mapToInt(OutboundQueue::depth).max().orElse(0))
+                .description("Deepest outbound queue of any WebSocket session on this node")
+                .register(meterRegistry);
+    }
+
+    public OutboundQueue create(Runnable onEviction) {
+        return new OutboundQueue(capacity, overflowPolicy, metrics, onEviction);
+    }
+
+    static class Metrics {
+        private final MeterRegistry meterRegistry;
+        private final Map<String, Counter> dropped = new ConcurrentHashMap<>();
+        private final Counter evicted;
+
+        Metrics(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            this.evicted = Counter.builder("secura.ws.outbound.evictions")
+                    .description("Sessions disconnected as slow consumers")
+                    .register(meterRegistry);
+        }
+
+        void dropped(String reason) {
+            dropped.computeIfAbsent(reason, r -> Counter.builder("secura.ws.outbound.dropped")
+                            .description("Outbound frames dropped or coalesced before delivery")
+                            .tag("reason", r)
+                            .register(meterRegistry))
+                    .increment();
+        }
+
+        void evicted() {
+            evicted.increment();
+        }
+    }
+}
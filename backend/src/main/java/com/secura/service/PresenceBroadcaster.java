@@ -0,0 +1,194 @@
+package com.secura.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secura.dto.PresenceUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces presence changes into periodic {@code user_presence_batch} frames.
+ * <p>
+ * Updates are collected for one tick window (latest state per user wins), serialized once,
+ * published once to the other nodes and then fanned out to local sessions. With scope
+ * {@code CONTACTS}, sessions only receive updates for users they subscribed to via
+ * {@code presence_subscribe}; sessions with the same subscriptions share one encoded frame.
+ * With scope {@code ALL} every session gets the same frame, including a user's own update,
+ * which the client skips.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceBroadcaster {
+
+    private static final String PRESENCE_CHANNEL = "secura:presence";
+    private static final String BATCH_FRAME_PREFIX = "{\"type\":\"user_presence_batch\",\"updates\":";
+
+    public enum Scope { ALL, CONTACTS }
+
+    private final ObjectMapper objectMapper;
+    private final FrameEncoder frameEncoder;
+    private final ClusterNode clusterNode;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+    private final Map<String, OutboundQueue> userOutboundQueues;
+
+    private final Map<String, PresenceUpdate> pending = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+    @Value("${secura.presence.tick-window:250ms}")
+    private Duration tickWindow;
+
+    @Value("${secura.presence.scope:ALL}")
+    private Scope scope;
+
+    private Disposable ticker;
+    private Disposable subscription;
+
+    @PostConstruct
+    public void start() {
+        subscription = listenerContainer.receive(ChannelTopic.of(PRESENCE_CHANNEL))
+                .subscribe(message -> onRemoteBatch(message.getMessage()),
+                        error -> log.error("Presence subscription failed", error));
+
+        ticker = Flux.interval(tickWindow)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush()
+                        .onErrorResume(error -> {
+                            log.error("Error flushing presence batch", error);
+                            return Flux.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Queues a presence change; it is delivered with the next tick.
+     */
+    public void publish(String username, boolean online, long lastSeen) {
+        pending.put(username, new PresenceUpdate(username, online, lastSeen));
+    }
+
+    /**
+     * Restricts the presence updates {@code username} receives to {@code contacts}
+     * when running with scope {@code CONTACTS}.
+     */
+    public void subscribe(String username, Set<String> contacts) {
+        subscriptions.put(username, Set.copyOf(contacts));
+    }
+
+    public void unsubscribe(String username) {
+        subscriptions.remove(username);
+    }
+
+    private Flux<Long> flush() {
+        if (pending.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<PresenceUpdate> batch = new ArrayList<>(pending.size());
+        for (String username : pending.keySet()) {
+            PresenceUpdate update = pending.remove(username);
+            if (update != null) {
+                batch.add(update);
+            }
+        }
+
+        String updatesJson;
+        try {
+            updatesJson = frameEncoder.encodeToString(batch);
+        } catch (Exception e) {
+            log.error("Error serializing presence batch", e);
+            return Flux.empty();
+        }
+
+        fanOut(batch, updatesJson);
+        return redisTemplate.convertAndSend(PRESENCE_CHANNEL, clusterNode.getId() + '\n' + updatesJson).flux();
+    }
+
+    private void onRemoteBatch(String envelope) {
+        int separator = envelope.indexOf('\n');
+        if (separator < 0 || envelope.substring(0, separator).equals(clusterNode.getId())) {
+            return;
+        }
+
+        String updatesJson = envelope.substring(separator + 1);
+        try {
+            List<PresenceUpdate> batch = objectMapper.readValue(updatesJson, new TypeReference<>() {});
+            fanOut(batch, updatesJson);
+        } catch (Exception e) {
+            log.error("Dropping malformed presence batch", e);
+        }
+    }
+
+    private void fanOut(List<PresenceUpdate> batch, String updatesJson) {
+        if (scope == Scope.ALL) {
+            byte[] shared = batchFrame(updatesJson);
+            userOutboundQueues.values().forEach(queue -> queue.offerPresence(null, shared));
+            return;
+        }
+
+        // Each distinct subscription set is filtered and encoded once per tick
+        Map<Set<String>, List<OutboundQueue>> groups = new HashMap<>();
+        userOutboundQueues.forEach((username, queue) -> {
+            Set<String> contacts = subscriptions.get(username);
+            if (contacts != null && !contacts.isEmpty()) {
+                groups.computeIfAbsent(contacts, unused -> new ArrayList<>()).add(queue);
+            }
+        });
+
+        Map<List<PresenceUpdate>, byte[]> frames = new HashMap<>();
+        groups.forEach((contacts, queues) -> {
+            List<PresenceUpdate> relevant = batch.stream()
+                    .filter(update -> contacts.contains(update.username()))
+                    .toList();
+            if (relevant.isEmpty()) {
+                return;
+            }
+            byte[] frame = frames.computeIfAbsent(relevant, this::encode);
+            if (frame != null) {
+                queues.forEach(queue -> queue.offerPresence(null, frame));
+            }
+        });
+    }
+
+    private byte[] encode(List<PresenceUpdate> updates) {
+        try {
+            return batchFrame(frameEncoder.encodeToString(updates));
+        } catch (Exception e) {
+            log.error("Error serializing presence batch", e);
+            return null;
+        }
+    }
+
+    private static byte[] batchFrame(String updatesJson) {
+        return (BATCH_FRAME_PREFIX + updatesJson + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
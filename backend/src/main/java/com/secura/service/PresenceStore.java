@@ -0,0 +1,183 @@
+package com.secura.service;
+
+import com.secura.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authoritative online/lastSeen state for users.
+ * <p>
+ * Changes are applied in memory and mirrored to a Redis hash so every node sees the same
+ * state. The {@code users} collection is updated write-behind: dirty entries are flushed
+ * as one unordered bulk write per interval and once more on shutdown. Users who are offline
+ * are dropped from memory once their state has been flushed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceStore {
+
+    private static final String PRESENCE_KEY = "secura:presence";
+
+    public record PresenceState(boolean online, long lastSeen) {
+    }
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final Map<String, PresenceState> states = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    @Value("${secura.presence.flush-interval:5s}")
+    private Duration flushInterval;
+
+    private Disposable flusher;
+
+    @PostConstruct
+    public void start() {
+        flusher = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush()
+                        .onErrorResume(error -> {
+                            log.error("Error flushing presence to Mongo", error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().block(Duration.ofSeconds(10));
+    }
+
+    public Mono<Void> markOnline(String username) {
+        return update(username, true);
+    }
+
+    public Mono<Void> markOffline(String username) {
+        return update(username, false);
+    }
+
+    public Mono<Void> update(String username, boolean online) {
+        PresenceState state = new PresenceState(online, System.currentTimeMillis());
+        states.put(username, state);
+        dirty.add(username);
+        return redisTemplate.opsForHash()
+                .put(PRESENCE_KEY, username, encode(state))
+                .then();
+    }
+
+    /**
+     * Returns the latest known state for {@code username}, consulting Redis for users
+     * whose presence last changed on another node.
+     */
+    public Mono<PresenceState> get(String username) {
+        return redisTemplate.<String, String>opsForHash()
+                .get(PRESENCE_KEY, username)
+                .map(PresenceStore::decode)
+                .switchIfEmpty(Mono.justOrEmpty(states.get(username)));
+    }
+
+    /**
+     * Latest known states for many users with one hash lookup; users with no known state are
+     * left out.
+     */
+    public Mono<Map<String, PresenceState>> getAll(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return redisTemplate.<String, String>opsForHash()
+                .multiGet(PRESENCE_KEY, usernames)
+                .map(values -> {
+                    Map<String, PresenceState> result = new HashMap<>();
+                    for (int i = 0; i < usernames.size(); i++) {
+                        String value = values.get(i);
+                        PresenceState state = value != null ? decode(value) : states.get(usernames.get(i));
+                        if (state != null) {
+                            result.put(usernames.get(i), state);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Writes all pending presence changes to the {@code users} collection in one bulk operation.
+     */
+    public Mono<Void> flush() {
+        if (dirty.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<String> usernames = new ArrayList<>(dirty.size());
+        Map<String, PresenceState> flushed = new HashMap<>();
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        for (String username : dirty) {
+            dirty.remove(username);
+            PresenceState state = states.get(username);
+            if (state == null) {
+                continue;
+            }
+            usernames.add(username);
+            flushed.put(username, state);
+            bulk.updateOne(
+                    Query.query(Criteria.where("username").is(username)),
+                    new Update().set("online", state.online()).set("last_seen", state.lastSeen()));
+        }
+
+        if (usernames.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return bulk.execute()
+                .doOnNext(result -> {
+                    log.debug("Flushed presence for {} users", usernames.size());
+                    evictOffline(flushed);
+                })
+                .doOnError(error -> dirty.addAll(usernames))
+                .then();
+    }
+
+    // Offline users are persisted and mirrored in Redis, so only online users stay in memory.
+    // The conditional remove keeps any state that changed while the flush was running.
+    private void evictOffline(Map<String, PresenceState> flushed) {
+        flushed.forEach((username, state) -> {
+            if (!state.online() && !dirty.contains(username)) {
+                states.remove(username, state);
+            }
+        });
+    }
+
+    private static String encode(PresenceState state) {
+        return (state.online() ? "1:" : "0:") + state.lastSeen();
+    }
+
+    private static PresenceState decode(String value) {
+        return new PresenceState(value.startsWith("1"), Long.parseLong(value.substring(2)));
+    }
+}
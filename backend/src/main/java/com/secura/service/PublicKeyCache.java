@@ -0,0 +1,212 @@
+package com.secura.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.secura.entity.User;
+import com.secura.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReactiveStringCommands.SetCommand;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Two-level cache of users' public keys: a bounded in-process near-cache in front of Redis,
+ * with Mongo as the source of truth.
+ * <p>
+ * Near-cache entries are refreshed in the background once they are older than
+ * {@code secura.keys.refresh-after}, so hot users are always served from memory. Unknown
+ * users are cached as absent for {@code secura.keys.negative-ttl}. Bulk lookups resolve all
+ * near-cache misses with one Redis {@code MGET} and one Mongo {@code $in}. Key changes and new
+ * registrations are published on {@code secura:keys:invalidate}, and every node evicts the
+ * user from its near-cache.
+ */
+@Component
+@Slf4j
+public class PublicKeyCache {
+
+    private static final String REDIS_KEY_PREFIX = "user:publicKey:";
+    private static final String INVALIDATION_CHANNEL = "secura:keys:invalidate";
+
+    private final UserRepository userRepository;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+    private final AsyncLoadingCache<String, Optional<String>> near;
+    private final Duration redisTtl;
+    private final Timer lookups;
+
+    private Disposable subscription;
+
+    public PublicKeyCache(UserRepository userRepository,
+                          ReactiveStringRedisTemplate redisTemplate,
+                          ReactiveRedisMessageListenerContainer listenerContainer,
+                          MeterRegistry meterRegistry,
+                          @Value("${secura.keys.near-cache-size:10000}") long nearCacheSize,
+                          @Value("${secura.keys.near-ttl:5m}") Duration nearTtl,
+                          @Value("${secura.keys.refresh-after:4m}") Duration refreshAfter,
+                          @Value("${secura.keys.negative-ttl:30s}") Duration negativeTtl,
+                          @Value("${secura.keys.redis-ttl:10m}") Duration redisTtl) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisTtl = redisTtl;
+        this.near = Caffeine.newBuilder()
+                .maximumSize(nearCacheSize)
+                .expireAfter(Expiry.<String, Optional<String>>writing(
+                        (username, key) -> key.isPresent() ? nearTtl : negativeTtl))
+                .refreshAfterWrite(refreshAfter)
+                .buildAsync(new Loader());
+        this.lookups = Timer.builder("secura.keys.lookup")
+                .description("Public key lookups through the near-cache")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = listenerContainer.receive(ChannelTopic.of(INVALIDATION_CHANNEL))
+                .subscribe(message -> near.synchronous().invalidate(message.getMessage()),
+                        error -> log.error("Public key invalidation subscription failed", error));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * The user's public key, or empty if the user does not exist or has no key.
+     */
+    public Mono<String> get(String username) {
+        long start = System.nanoTime();
+        return Mono.fromFuture(near.get(username))
+                .doOnNext(unused -> lookups.record(Duration.ofNanos(System.nanoTime() - start)))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Public keys for {@code usernames}; users that do not exist or have no key are left out.
+     */
+    public Mono<Map<String, String>> getAll(Collection<String> usernames) {
+        return Mono.fromFuture(near.getAll(usernames))
+                .map(entries -> {
+                    Map<String, String> keys = new LinkedHashMap<>();
+                    entries.forEach((username, key) -> key.ifPresent(value -> keys.put(username, value)));
+                    return keys;
+                });
+    }
+
+    /**
+     * Drops the cached key on every node, e.g. after the key changed or the user was created.
+     */
+    public Mono<Void> invalidate(String username) {
+        near.synchronous().invalidate(username);
+        return redisTemplate.opsForValue().delete(REDIS_KEY_PREFIX + username)
+                .then(redisTemplate.convertAndSend(INVALIDATION_CHANNEL, username))
+                .then();
+    }
+
+    private class Loader implements AsyncCacheLoader<String, Optional<String>> {
+
+        @Override
+        public CompletableFuture<Optional<String>> asyncLoad(String username, Executor executor) {
+            return load(username)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .toFuture();
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Optional<String>>> asyncLoadAll(
+                Set<? extends String> usernames, Executor executor) {
+            return loadAll(List.copyOf(usernames)).toFuture();
+        }
+    }
+
+    // Every requested username maps to a value, absent ones to empty, so misses are negatively cached
+    private Mono<Map<String, Optional<String>>> loadAll(List<String> usernames) {
+        List<String> redisKeys = usernames.stream().map(username -> REDIS_KEY_PREFIX + username).toList();
+
+        return redisTemplate.opsForValue().multiGet(redisKeys)
+                .flatMap(cached -> {
+                    Map<String, Optional<String>> result = new HashMap<>();
+                    List<String> misses = new ArrayList<>();
+                    for (int i = 0; i < usernames.size(); i++) {
+                        String key = cached.get(i);
+                        if (key != null) {
+                            result.put(usernames.get(i), Optional.of(key));
+                        } else {
+                            result.put(usernames.get(i), Optional.empty());
+                            misses.add(usernames.get(i));
+                        }
+                    }
+                    if (misses.isEmpty()) {
+                        return Mono.just(result);
+                    }
+
+                    return userRepository.findByUsernameIn(misses)
+                            .filter(user -> user.getPublicKey() != null)
+                            .collectMap(User::getUsername, User::getPublicKey)
+                            .flatMap(backfill -> {
+                                backfill.forEach((username, key) -> result.put(username, Optional.of(key)));
+                                return writeBack(backfill).thenReturn(result);
+                            });
+                });
+    }
+
+    // One pipelined batch of SET ... PX commands; MSET cannot carry a TTL
+    private Mono<Void> writeBack(Map<String, String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.empty();
+        }
+        Expiration expiration = Expiration.from(redisTtl);
+        return redisTemplate.execute(connection -> connection.stringCommands()
+                        .set(Flux.fromIterable(keys.entrySet())
+                                .map(entry -> SetCommand.set(utf8(REDIS_KEY_PREFIX + entry.getKey()))
+                                        .value(utf8(entry.getValue()))
+                                        .expiring(expiration))))
+                .then();
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mono<String> load(String username) {
+        String redisKey = REDIS_KEY_PREFIX + username;
+        return redisTemplate.opsForValue().get(redisKey)
+                .switchIfEmpty(Mono.defer(() -> userRepository.findByUsername(username)
+                        .mapNotNull(User::getPublicKey)
+                        .flatMap(publicKey -> redisTemplate.opsForValue()
+                                .set(redisKey, publicKey, redisTtl)
+                                .thenReturn(publicKey))));
+    }
+}
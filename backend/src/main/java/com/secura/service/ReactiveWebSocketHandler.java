@@ -1,100 +1,146 @@
 package com.secura.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secura.dto.InboundFrame;
+import com.secura.dto.MessageSentFrame;
+import com.secura.dto.MessageView;
+import com.secura.dto.NewMessageFrame;
 import com.secura.entity.Message;
 import com.secura.entity.Task;
+import com.secura.exception.InvalidFrameException;
 import com.secura.repository.MessageRepository;
 import com.secura.repository.TaskRepository;
-import com.secura.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ReactiveWebSocketHandler implements WebSocketHandler {
 
+    private static final int HISTORY_CHUNK_SIZE = 50;
+    private static final int REPLAY_PAGE_SIZE = 200;
+    private static final int REPLAY_MAX_WAITS = 100;
+    private static final Duration REPLAY_POLL_INTERVAL = Duration.ofMillis(100);
+
     private final MessageRepository messageRepository;
-    private final UserRepository userRepository;
     private final TaskRepository taskRepository;
-    private final ObjectMapper objectMapper;
-    private final Map<String, Sinks.Many<String>> userMessageSinks;
-    private final Map<String, WebSocketSession> userSessions = new ConcurrentHashMap<>();
+    private final InboundFrameDecoder frameDecoder;
+    private final FrameEncoder frameEncoder;
+    private final Map<String, OutboundQueue> userOutboundQueues;
+    private final OutboundQueueFactory outboundQueueFactory;
+    private final ClusterMessageRouter messageRouter;
+    private final PresenceBroadcaster presenceBroadcaster;
+    private final PresenceStore presenceStore;
+    private final MessageHistoryService messageHistoryService;
+    private final MessageAckPipeline ackPipeline;
+    private final SentMessageCache sentMessageCache;
+    private final AssistantService assistantService;
+    private final NotificationOutboxService notificationOutbox;
+    private final UserService userService;
+
+    @Value("${secura.keys.max-batch:500}")
+    private int maxKeyBatch;
 
     @Override
     public Mono<Void> handle(WebSocketSession session) {
-        Sinks.Many<String> messageSink = Sinks.many().multicast().onBackpressureBuffer();
+        OutboundQueue outbound = outboundQueueFactory.create(() -> {
+            log.warn("Disconnecting slow consumer on session {}", session.getId());
+            session.close(CloseStatus.POLICY_VIOLATION).subscribe();
+        });
 
         Mono<Void> input = session.receive()
-                .map(WebSocketMessage::getPayloadAsText)
-                .flatMap(payload -> handleMessage(session, payload, messageSink))
+                .flatMap(message -> {
+                    // Decode synchronously while the payload buffer is still valid
+                    InboundFrame frame;
+                    try {
+                        frame = frameDecoder.decode(message.getPayload());
+                    } catch (InvalidFrameException e) {
+                        log.warn("Rejected WebSocket frame on session {}: {}", session.getId(), e.getMessage());
+                        return sendError(outbound, "Invalid message: " + e.getMessage());
+                    }
+                    return handleMessage(session, frame, outbound);
+                })
                 .doOnError(error -> log.error("Error in WebSocket input stream", error))
                 .then();
 
         Mono<Void> output = session.send(
-                messageSink.asFlux()
-                        .map(session::textMessage)
+                outbound.asFlux()
+                        // Wraps the pre-encoded bytes; no String round trip or re-encoding per send
+                        .map(frame -> new WebSocketMessage(WebSocketMessage.Type.TEXT,
+                                session.bufferFactory().wrap(frame)))
                         .doOnError(error -> log.error("Error in WebSocket output stream", error))
         );
 
         return Mono.zip(input, output)
                 .doOnSubscribe(subscription -> log.info("WebSocket connection established: {}", session.getId()))
                 .doFinally(signalType -> {
-                    handleConnectionClosed(session);
-                    messageSink.tryEmitComplete();
+                    handleConnectionClosed(session, outbound);
+                    outbound.complete();
                     log.info("WebSocket connection closed: {}", session.getId());
                 })
                 .then();
     }
 
-    private Mono<Void> handleMessage(WebSocketSession session, String payload, Sinks.Many<String> messageSink) {
+    private Mono<Void> handleMessage(WebSocketSession session, InboundFrame frame, OutboundQueue outbound) {
         return Mono.fromCallable(() -> {
                     try {
-                        JsonNode jsonMessage = objectMapper.readTree(payload);
-                        String type = jsonMessage.get("type").asText();
+                        String type = frame.getType();
 
                         switch (type) {
                             case "register":
-                                return handleUserRegistration(session, jsonMessage, messageSink);
+                                return handleUserRegistration(session, frame, outbound);
                             case "send_message":
-                                return handleSendMessage(session, jsonMessage);
+                                return handleSendMessage(session, frame, outbound);
                             case "get_messages":
-                                return handleGetMessages(session, jsonMessage, messageSink);
+                                return handleGetMessages(session, frame, outbound);
                             case "presence":
-                                return handlePresenceUpdate(session, jsonMessage);
+                                return handlePresenceUpdate(session, frame);
+                            case "presence_subscribe":
+                                return handlePresenceSubscribe(session, frame);
                             case "message_ack":
-                                return handleAckMessage(jsonMessage);
+                                return handleAckMessage(frame);
                             case "get_pending_tasks":
-                                return handleGetPendingTasks(session, jsonMessage, messageSink);
+                                return handleGetPendingTasks(session, frame, outbound);
+                            case "llm_chat":
+                                return handleLlmChat(frame, outbound);
+                            case "get_public_keys":
+                                return handleGetPublicKeys(frame, outbound);
                             default:
-                                return sendError(messageSink, "Unknown message type: " + type);
+                                return sendError(outbound, "Unknown message type: " + type);
                         }
                     } catch (Exception e) {
-                        log.error("Error parsing WebSocket message", e);
-                        return sendError(messageSink, "Error processing message: " + e.getMessage());
+                        log.error("Error processing WebSocket message", e);
+                        return sendError(outbound, "Error processing message: " + e.getMessage());
                     }
                 })
                 .flatMap(mono -> mono)
                 .onErrorResume(error -> {
                     log.error("Error handling WebSocket message", error);
-                    return sendError(messageSink, "Internal error occurred");
+                    return sendError(outbound, "Internal error occurred");
                 });
     }
 
-    private Mono<Void> handleGetPendingTasks(WebSocketSession session, JsonNode jsonMessage, Sinks.Many<String> messageSink) {
+    private Mono<Void> handleGetPendingTasks(WebSocketSession session, InboundFrame frame, OutboundQueue outbound) {
         String username = (String) session.getAttributes().get("username");
 
         return taskRepository.findByAssigneeAndStatus(username, Task.Status.PENDING)
@@ -112,185 +158,359 @@ public class ReactiveWebSocketHandler implements WebSocketHandler {
                         return taskMap;
                     }).toList());
 
-                    return sendMessage(messageSink, response);
+                    return sendMessage(outbound, response);
                 });
     }
 
-    private Mono<Void> handleUserRegistration(WebSocketSession session, JsonNode jsonMessage, Sinks.Many<String> messageSink) {
-        String username = jsonMessage.get("username").asText();
+    private Mono<Void> handleUserRegistration(WebSocketSession session, InboundFrame frame, OutboundQueue outbound) {
+        String username = frame.getUsername();
+        if (username == null || username.isBlank()) {
+            return sendError(outbound, "register requires a username");
+        }
 
-        userSessions.put(username, session);
-        userMessageSinks.put(username, messageSink);
+        userOutboundQueues.put(username, outbound);
         session.getAttributes().put("username", username);
 
-        // Lookup user by username, not ID
-        return userRepository.findByUsername(username)
-                .flatMap(user -> {
-                    user.setOnline(true);
-                    user.setLastSeen(System.currentTimeMillis());
-                    return userRepository.save(user);
-                })
+        // Presence is write-behind; no Mongo round trip on connect
+        return messageRouter.register(username)
+                .then(presenceStore.markOnline(username))
                 .then(Mono.fromCallable(() -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("type", "registration_success");
                     response.put("username", username);
                     return response;
                 }))
-                .flatMap(response -> sendMessage(messageSink, response))
+                .flatMap(response -> sendMessage(outbound, response))
                 .then(broadcastUserPresence(username, true))
-                .then(sendUndeliveredMessages(username, messageSink));
+                .then(sendUndeliveredMessages(username, outbound))
+                .then(sendQueuedNotifications(username, outbound));
     }
 
-    private Mono<Void> sendUndeliveredMessages(String username, Sinks.Many<String> messageSink) {
-        return messageRepository.findByRecipientAndDeliveredFalse(username)
-                .flatMap(msg -> {
-                    Map<String, Object> msgMap = new HashMap<>();
-                    msgMap.put("type", "new_message");
-                    msgMap.put("id", msg.getId());
-                    msgMap.put("sender", msg.getSender());
-                    msgMap.put("recipient", msg.getRecipient());
-                    msgMap.put("content", msg.getContent());
-                    msgMap.put("timestamp", msg.getTimestamp().toString());
-                    return sendMessage(messageSink, msgMap);
+    // Replays the backlog a page at a time, each page sized to the room left in the queue,
+    // so a long backlog neither overflows the queue nor crowds out live frames
+    private Mono<Void> sendUndeliveredMessages(String username, OutboundQueue outbound) {
+        return Mono.defer(() -> replayPage(username, outbound))
+                .repeat()
+                .takeWhile(Boolean::booleanValue)
+                .then();
+    }
+
+    // Emits true if a full page was replayed and more may be pending
+    private Mono<Boolean> replayPage(String username, OutboundQueue outbound) {
+        return awaitReplayRoom(username, outbound)
+                .flatMap(room -> {
+                    int pageSize = Math.min(room, REPLAY_PAGE_SIZE);
+                    // Only frames the queue accepted are marked; a closed session stops the replay
+                    return ackPipeline.findReplayable(username, pageSize)
+                            .concatMap(msg -> offerMessage(outbound, NewMessageFrame.of(msg))
+                                    .map(accepted -> accepted ? msg.getId() : ""))
+                            .takeWhile(id -> !id.isEmpty())
+                            .collectList()
+                            .flatMap(ids -> ids.isEmpty()
+                                    ? Mono.just(false)
+                                    : ackPipeline.markReplayed(ids).thenReturn(ids.size() == pageSize));
+                })
+                .defaultIfEmpty(false);
+    }
+
+    // Empty if the session closed, or the queue did not drain within the replay wait
+    private Mono<Integer> awaitReplayRoom(String username, OutboundQueue outbound) {
+        return Mono.fromCallable(outbound::replayRoom)
+                .filter(room -> room != 0)
+                .repeatWhenEmpty(REPLAY_MAX_WAITS, waits -> waits.delayElements(REPLAY_POLL_INTERVAL))
+                .filter(room -> room > 0)
+                .onErrorResume(IllegalStateException.class, error -> {
+                    log.warn("Pausing replay for {}: outbound queue is not draining", username);
+                    return Mono.empty();
+                });
+    }
+
+    // Queued notifications go out as the frames they were sent as, paged like the message
+    // replay; entries are removed only once the queue has accepted them
+    private Mono<Void> sendQueuedNotifications(String username, OutboundQueue outbound) {
+        return Mono.defer(() -> replayNotificationPage(username, outbound))
+                .repeat()
+                .takeWhile(Boolean::booleanValue)
+                .onErrorResume(error -> {
+                    log.error("Error replaying queued notifications for {}", username, error);
+                    return Mono.empty();
                 })
                 .then();
     }
 
-    private Mono<Void> handleSendMessage(WebSocketSession session, JsonNode jsonMessage) {
+    // Emits true if a full page was replayed and more may be pending
+    private Mono<Boolean> replayNotificationPage(String username, OutboundQueue outbound) {
+        return awaitReplayRoom(username, outbound)
+                .flatMap(room -> {
+                    int pageSize = Math.min(room, REPLAY_PAGE_SIZE);
+                    return notificationOutbox.pending(username, pageSize)
+                            .flatMapMany(Flux::fromIterable)
+                            .concatMap(entry -> offerMessage(outbound, entry.getFrame())
+                                    .map(accepted -> accepted ? entry.getEntryId() : ""))
+                            .takeWhile(id -> !id.isEmpty())
+                            .collectList()
+                            .flatMap(ids -> notificationOutbox.remove(username, ids)
+                                    .thenReturn(!ids.isEmpty() && ids.size() == pageSize));
+                })
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<Void> handleSendMessage(WebSocketSession session, InboundFrame frame, OutboundQueue outbound) {
         String sender = (String) session.getAttributes().get("username");
-        String recipient = jsonMessage.get("recipient").asText();
-        String content = jsonMessage.get("content").asText();
-        String tempId = jsonMessage.has("tempId") ? jsonMessage.get("tempId").asText() : null;
+        String recipient = frame.getRecipient();
+        String content = frame.getContent();
+        String tempId = frame.getTempId();
+
+        if (recipient == null || content == null) {
+            return sendError(outbound, "send_message requires recipient and content");
+        }
+
+        if (tempId != null) {
+            SentMessageCache.SentMessage sent = sentMessageCache.get(sender, tempId);
+            if (sent != null) {
+                // Retry of a send we already stored: confirm again, no second write or fan-out
+                return confirmSend(sender, MessageSentFrame.duplicateOf(tempId, sent.messageId(), sent.delivered()));
+            }
+        }
 
         Message newMessage = new Message();
         newMessage.setSender(sender);
         newMessage.setRecipient(recipient);
         newMessage.setContent(content);
         newMessage.setTimestamp(Instant.now());
-
-        boolean isRecipientOnline = userSessions.containsKey(recipient) &&
-                userSessions.get(recipient).isOpen();
-        newMessage.setDelivered(isRecipientOnline);
-
-        return messageRepository.save(newMessage)
-                .flatMap(savedMessage -> {
-                    Map<String, Object> messageResponse = new HashMap<>();
-                    messageResponse.put("type", "new_message");
-                    messageResponse.put("id", savedMessage.getId());
-                    messageResponse.put("sender", sender);
-                    messageResponse.put("recipient", recipient);
-                    messageResponse.put("content", content);
-                    messageResponse.put("timestamp", savedMessage.getTimestamp().toString());
-
-                    Mono<Void> sendToRecipient = Mono.empty();
-                    if (isRecipientOnline) {
-                        Sinks.Many<String> recipientSink = userMessageSinks.get(recipient);
-                        if (recipientSink != null) {
-                            sendToRecipient = sendMessage(recipientSink, messageResponse);
-                        }
+        newMessage.setTempId(tempId);
+
+        return messageRouter.isOnline(recipient)
+                .flatMap(isRecipientOnline -> {
+                    newMessage.setDelivered(isRecipientOnline);
+                    return messageRepository.save(newMessage)
+                            .map(saved -> new SendOutcome(saved, false))
+                            // Retry that missed the LRU (other node or evicted) hits the unique sender_temp_id index
+                            .onErrorResume(DuplicateKeyException.class, e -> messageRepository
+                                    .findBySenderAndTempId(sender, tempId)
+                                    .map(existing -> new SendOutcome(existing, true)));
+                })
+                .flatMap(outcome -> {
+                    Message savedMessage = outcome.message();
+                    if (outcome.duplicate()) {
+                        rememberSent(savedMessage);
+                        return confirmSend(sender, MessageSentFrame.duplicateOf(
+                                tempId, savedMessage.getId(), savedMessage.getDelivered()));
                     }
 
-                    Map<String, Object> confirmation = new HashMap<>();
-                    confirmation.put("type", "message_sent");
-                    confirmation.put("tempId", tempId);
-                    confirmation.put("messageId", savedMessage.getId());
-                    confirmation.put("delivered", savedMessage.getDelivered());
+                    // If routing fails after all, keep the message queued for replay on reconnect
+                    Mono<Message> sendToRecipient = savedMessage.getDelivered()
+                            ? routeMessage(recipient, NewMessageFrame.of(savedMessage))
+                                    .filter(delivered -> !delivered)
+                                    .flatMap(unused -> {
+                                        savedMessage.setDelivered(false);
+                                        return messageRepository.save(savedMessage);
+                                    })
+                            : Mono.empty();
+
+                    return sendToRecipient
+                            .then(Mono.fromRunnable(() -> rememberSent(savedMessage)))
+                            .then(Mono.defer(() -> confirmSend(sender, MessageSentFrame.of(
+                                    tempId, savedMessage.getId(), savedMessage.getDelivered()))));
+                });
+    }
+
+    private record SendOutcome(Message message, boolean duplicate) {
+    }
 
-                    Sinks.Many<String> senderSink = userMessageSinks.get(sender);
-                    Mono<Void> sendConfirmation = senderSink != null ? sendMessage(senderSink, confirmation) : Mono.empty();
+    private void rememberSent(Message message) {
+        if (message.getTempId() != null) {
+            sentMessageCache.put(message.getSender(), message.getTempId(),
+                    new SentMessageCache.SentMessage(message.getId(), message.getDelivered()));
+        }
+    }
 
-                    return Mono.when(sendToRecipient, sendConfirmation);
-                });
+    private Mono<Void> confirmSend(String sender, MessageSentFrame confirmation) {
+        return Mono.defer(() -> {
+            OutboundQueue senderQueue = userOutboundQueues.get(sender);
+            return senderQueue != null ? sendMessage(senderQueue, confirmation) : Mono.empty();
+        });
     }
 
-    private Mono<Void> handleAckMessage(JsonNode jsonMessage) {
-        String messageId = jsonMessage.get("messageId").asText();
-        return messageRepository.deleteById(messageId)
-                .doOnSuccess(unused -> log.info("Deleted message with ID {} after ACK", messageId));
+    private Mono<Void> handleAckMessage(InboundFrame frame) {
+        List<String> messageIds = new ArrayList<>();
+        if (frame.getMessageId() != null) {
+            messageIds.add(frame.getMessageId());
+        }
+        if (frame.getMessageIds() != null) {
+            messageIds.addAll(frame.getMessageIds());
+        }
+        // Deleted in bulk with other ACKs received on this node
+        return Mono.fromRunnable(() -> ackPipeline.acknowledge(messageIds));
     }
 
-    private Mono<Void> handleGetMessages(WebSocketSession session, JsonNode jsonMessage, Sinks.Many<String> messageSink) {
+    private Mono<Void> handleGetMessages(WebSocketSession session, InboundFrame frame, OutboundQueue outbound) {
         String username = (String) session.getAttributes().get("username");
 
-        return messageRepository.findByRecipient(username)
-                .collectList()
-                .flatMap(messages -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("type", "messages_history");
-                    response.put("messages", messages.stream().map(msg -> {
-                        Map<String, Object> msgMap = new HashMap<>();
-                        msgMap.put("id", msg.getId());
-                        msgMap.put("sender", msg.getSender());
-                        msgMap.put("recipient", msg.getRecipient());
-                        msgMap.put("content", msg.getContent());
-                        msgMap.put("timestamp", msg.getTimestamp().toString());
-                        return msgMap;
-                    }).toList());
+        Instant before;
+        try {
+            before = frame.getBefore() != null ? Instant.parse(frame.getBefore()) : null;
+        } catch (DateTimeParseException e) {
+            return sendError(outbound, "Invalid history cursor: " + frame.getBefore());
+        }
+        // Falling back to the newest page would make a client paging backward loop forever
+        if (!messageHistoryService.isValidCursor(before, frame.getBeforeId())) {
+            return sendError(outbound, "Invalid history cursor: before and a valid beforeId are both required");
+        }
+
+        int pageSize = messageHistoryService.pageSize(frame.getLimit());
+        AtomicReference<Message> last = new AtomicReference<>();
+        AtomicBoolean hasMore = new AtomicBoolean();
+
+        // One extra row tells us whether there is another page; it is not sent
+        return messageHistoryService.page(username, before, frame.getBeforeId(), pageSize + 1)
+                .index()
+                .filter(indexed -> {
+                    if (indexed.getT1() < pageSize) {
+                        return true;
+                    }
+                    hasMore.set(true);
+                    return false;
+                })
+                .map(indexed -> {
+                    last.set(indexed.getT2());
+                    return MessageView.of(indexed.getT2());
+                })
+                .buffer(HISTORY_CHUNK_SIZE)
+                .concatMap(chunk -> sendMessage(outbound, Map.of(
+                        "type", "messages_history",
+                        "messages", chunk)))
+                .then(Mono.defer(() -> {
+                    Map<String, Object> end = new HashMap<>();
+                    end.put("type", "messages_history_end");
+                    end.put("hasMore", hasMore.get());
+                    if (hasMore.get() && last.get() != null) {
+                        end.put("nextCursor", Map.of(
+                                "before", last.get().getTimestamp().toString(),
+                                "beforeId", last.get().getId()));
+                    }
+                    return sendMessage(outbound, end);
+                }));
+    }
+
+    private Mono<Void> handleLlmChat(InboundFrame frame, OutboundQueue outbound) {
+        String prompt = frame.getContent();
+        if (prompt == null || prompt.isBlank()) {
+            return sendError(outbound, "llm_chat requires content");
+        }
+
+        String requestId = frame.getRequestId();
+        // Tokens are forwarded as they arrive; the client reassembles them by requestId
+        return assistantService.streamChat(prompt)
+                .concatMap(token -> {
+                    Map<String, Object> tokenFrame = llmFrame("llm_token", requestId);
+                    tokenFrame.put("token", token);
+                    return sendMessage(outbound, tokenFrame);
+                })
+                .then(Mono.defer(() -> sendMessage(outbound, llmFrame("llm_done", requestId))))
+                .onErrorResume(error -> {
+                    log.error("LLM stream failed for request {}", requestId, error);
+                    Map<String, Object> errorFrame = llmFrame("llm_error", requestId);
+                    errorFrame.put("message", String.valueOf(error.getMessage()));
+                    return sendMessage(outbound, errorFrame);
+                });
+    }
 
-                    return sendMessage(messageSink, response);
+    private static Map<String, Object> llmFrame(String type, String requestId) {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", type);
+        frame.put("requestId", requestId);
+        return frame;
+    }
+
+    private Mono<Void> handleGetPublicKeys(InboundFrame frame, OutboundQueue outbound) {
+        List<String> usernames = frame.getUsernames();
+        if (usernames == null || usernames.isEmpty() || usernames.size() > maxKeyBatch) {
+            return sendError(outbound, "get_public_keys requires 1 to " + maxKeyBatch + " usernames");
+        }
+
+        return userService.getPublicKeys(new HashSet<>(usernames))
+                .flatMap(keys -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("type", "public_keys");
+                    response.put("requestId", frame.getRequestId());
+                    response.put("keys", keys);
+                    return sendMessage(outbound, response);
                 });
     }
 
-    private Mono<Void> handlePresenceUpdate(WebSocketSession session, JsonNode jsonMessage) {
+    private Mono<Void> handlePresenceUpdate(WebSocketSession session, InboundFrame frame) {
         String username = (String) session.getAttributes().get("username");
-        boolean online = jsonMessage.get("online").asBoolean();
+        boolean online = Boolean.TRUE.equals(frame.getOnline());
 
-        return userRepository.findByUsername(username)
-                .flatMap(user -> {
-                    user.setOnline(online);
-                    user.setLastSeen(System.currentTimeMillis());
-                    return userRepository.save(user);
-                })
+        return presenceStore.update(username, online)
                 .then(broadcastUserPresence(username, online));
     }
 
+    private Mono<Void> handlePresenceSubscribe(WebSocketSession session, InboundFrame frame) {
+        String username = (String) session.getAttributes().get("username");
+        if (username == null) {
+            return Mono.empty();
+        }
+
+        List<String> contacts = frame.getUsernames() != null ? frame.getUsernames() : List.of();
+        presenceBroadcaster.subscribe(username, new HashSet<>(contacts));
+        return Mono.empty();
+    }
+
     private Mono<Void> broadcastUserPresence(String username, boolean online) {
-        Map<String, Object> presenceUpdate = new HashMap<>();
-        presenceUpdate.put("type", "user_presence");
-        presenceUpdate.put("username", username);
-        presenceUpdate.put("online", online);
-        presenceUpdate.put("lastSeen", System.currentTimeMillis());
-
-        return Flux.fromIterable(userMessageSinks.entrySet())
-                .filter(entry -> !entry.getKey().equals(username))
-                .flatMap(entry -> sendMessage(entry.getValue(), presenceUpdate))
-                .then();
+        // Delivered with the next presence tick as part of a user_presence_batch frame
+        return Mono.fromRunnable(() -> presenceBroadcaster.publish(username, online, System.currentTimeMillis()));
     }
 
-    private void handleConnectionClosed(WebSocketSession session) {
+    private void handleConnectionClosed(WebSocketSession session, OutboundQueue outbound) {
         String username = (String) session.getAttributes().get("username");
-        if (username != null) {
-            userSessions.remove(username);
-            userMessageSinks.remove(username);
-
-            userRepository.findByUsername(username)
-                    .flatMap(user -> {
-                        user.setOnline(false);
-                        user.setLastSeen(System.currentTimeMillis());
-                        return userRepository.save(user);
-                    })
+        // Skip if a newer session for the same user has already replaced this one
+        if (username != null && userOutboundQueues.remove(username, outbound)) {
+            presenceBroadcaster.unsubscribe(username);
+            messageRouter.unregister(username)
+                    .then(presenceStore.markOffline(username))
+                    // Replayed frames still queued at disconnect were never sent
+                    .then(ackPipeline.clearReplayed(username))
                     .then(broadcastUserPresence(username, false))
                     .subscribe(unused -> {}, error -> log.error("Error updating user offline status", error));
         }
     }
 
-    private Mono<Void> sendMessage(Sinks.Many<String> messageSink, Object message) {
+    private Mono<Void> sendMessage(OutboundQueue outbound, Object message) {
+        return offerMessage(outbound, message).then();
+    }
+
+    /**
+     * Queues {@code message} for the session; emits false if the session was closed or evicted.
+     */
+    private Mono<Boolean> offerMessage(OutboundQueue outbound, Object message) {
         return Mono.fromCallable(() -> {
+            byte[] frame;
             try {
-                String jsonMessage = objectMapper.writeValueAsString(message);
-                messageSink.tryEmitNext(jsonMessage);
-                return null;
+                frame = frameEncoder.encode(message);
             } catch (Exception e) {
                 log.error("Error serializing message", e);
                 throw new RuntimeException("Failed to serialize message", e);
             }
-        }).then();
+            return outbound.offerMessage(frame);
+        });
+    }
+
+    private Mono<Boolean> routeMessage(String username, Object message) {
+        return Mono.fromCallable(() -> frameEncoder.encode(message))
+                .flatMap(frame -> messageRouter.deliver(username, frame))
+                .doOnNext(delivered -> {
+                    if (!delivered) {
+                        log.warn("Could not route message to {}", username);
+                    }
+                });
     }
 
-    private Mono<Void> sendError(Sinks.Many<String> messageSink, String error) {
+    private Mono<Void> sendError(OutboundQueue outbound, String error) {
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("type", "error");
         errorResponse.put("message", error);
-        return sendMessage(messageSink, errorResponse);
+        return sendMessage(outbound, errorResponse);
     }
 }
@@ -0,0 +1,234 @@
+package com.secura.service;
+
+import com.secura.entity.Task;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process extraction for conversations whose task is spelled out plainly, e.g.
+ * "@bob please finish the report by tomorrow 5pm". It recognizes imperatives, @mentions and
+ * common relative dates (resolved in the client's zone), and scores how sure it is so the
+ * caller can fall back to the LLM for anything less obvious.
+ */
+@Component
+public class RuleBasedTaskExtractor {
+
+    public record Match(Task task, double confidence) {
+    }
+
+    private static final String VERBS = "finish|complete|submit|send|review|prepare|write|call|fix|update|book"
+            + "|schedule|deploy|share|email|pay|buy|check|make|create|draft|finalize|finalise|upload"
+            + "|test|merge|approve|sign|file|organize|organise|plan|clean|read|reply|respond|remind";
+
+    private static final Pattern IMPERATIVE = Pattern.compile(
+            "^\\s*(?:@(\\w+)[,:]?\\s+)?(?:(?:please|pls|plz|kindly|can you|could you|would you)\\s+)?"
+                    + "((?:" + VERBS + ")\\b.*)$",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern MENTION = Pattern.compile("@(\\w+)");
+
+    private static final Pattern IN_DURATION = Pattern.compile(
+            "\\b(?:in\\s+(\\d+)\\s*(minutes?|mins?|hours?|hrs?|days?|weeks?)"
+                    + "|(\\d+)\\s*(minutes?|mins?|hours?|hrs?|days?|weeks?)\\s+from\\s+now)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern DAY = Pattern.compile(
+            "\\b(day after tomorrow|today|tonight|tomorrow|tmrw|tmr|next week"
+                    + "|(?:next\\s+|this\\s+)?(?:monday|tuesday|wednesday|thursday|friday|saturday|sunday))\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern TIME_12H = Pattern.compile(
+            "\\b(?:at\\s+)?(1[0-2]|0?[1-9])(?::([0-5]\\d))?\\s*(am|pm)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern TIME_24H = Pattern.compile(
+            "\\b(?:at\\s+)?([01]?\\d|2[0-3]):([0-5]\\d)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern END_OF_DAY = Pattern.compile("\\b(?:eod|end of (?:the )?day)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern TRAILING_FILLER = Pattern.compile(
+            "(?:\\s+(?:by|before|on|at|until|due|latest|please|pls|asap))+\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final LocalTime DEFAULT_TIME = LocalTime.of(17, 0);
+
+    /**
+     * Returns the task in {@code messages}, if any message reads as an instruction.
+     * The most recent instruction wins.
+     */
+    public Optional<Match> extract(List<Map<String, String>> messages, ZonedDateTime now) {
+        Match best = null;
+        int instructions = 0;
+
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            Map<String, String> msg = messages.get(i);
+            String content = msg.get("content");
+            if (content == null) {
+                continue;
+            }
+            Matcher imperative = IMPERATIVE.matcher(content.trim());
+            if (!imperative.matches()) {
+                continue;
+            }
+            Match candidate = match(msg, imperative, now);
+            if (candidate == null) {
+                continue;
+            }
+            instructions++;
+            if (best == null) {
+                best = candidate;
+            }
+        }
+
+        if (best == null) {
+            return Optional.empty();
+        }
+        // Several instructions in one thread: the LLM is better at picking the right one
+        double confidence = instructions > 1 ? best.confidence() - 0.2 : best.confidence();
+        return Optional.of(new Match(best.task(), confidence));
+    }
+
+    // Null if nothing is left of the instruction once the date and mention are removed
+    private Match match(Map<String, String> msg, Matcher imperative, ZonedDateTime now) {
+        double confidence = 0.5;
+        String body = imperative.group(2);
+
+        String assignee = imperative.group(1);
+        if (assignee == null) {
+            Matcher mention = MENTION.matcher(body);
+            if (mention.find()) {
+                assignee = mention.group(1);
+            }
+        }
+        if (assignee != null) {
+            confidence += 0.2;
+        } else if (msg.get("recipient") != null) {
+            assignee = msg.get("recipient");
+            confidence += 0.15;
+        }
+
+        Deadline deadline = resolveDeadline(body, now);
+        if (deadline != null) {
+            confidence += deadline.exactTime() ? 0.2 : 0.1;
+        }
+
+        String title = deadline != null ? deadline.remainder() : body;
+        title = MENTION.matcher(title).replaceAll("");
+        title = title.replaceAll("[\\s,.!?;:]+$", "").replaceAll("\\s{2,}", " ").trim();
+        title = TRAILING_FILLER.matcher(title).replaceAll("").trim();
+        if (title.isEmpty()) {
+            return null;
+        }
+        title = Character.toUpperCase(title.charAt(0)) + title.substring(1);
+
+        Task task = Task.builder()
+                .taskTitle(title)
+                .deadline(deadline != null ? deadline.at().toInstant() : null)
+                .assignee(assignee)
+                .assignedBy(msg.getOrDefault("sender", "Unknown"))
+                .status(Task.Status.PENDING)
+                .build();
+        // "today 9am" said at 3pm is ambiguous; a past deadline would fire immediately, so leave it to the LLM
+        if (deadline != null && !deadline.at().isAfter(now)) {
+            return new Match(task, 0.0);
+        }
+        return new Match(task, Math.min(confidence, 1.0));
+    }
+
+    private record Deadline(ZonedDateTime at, boolean exactTime, String remainder) {
+    }
+
+    private Deadline resolveDeadline(String text, ZonedDateTime now) {
+        Matcher duration = IN_DURATION.matcher(text);
+        if (duration.find()) {
+            String amount = duration.group(1) != null ? duration.group(1) : duration.group(3);
+            String unit = duration.group(2) != null ? duration.group(2) : duration.group(4);
+            ZonedDateTime at = now.plus(toDuration(Long.parseLong(amount), unit)).truncatedTo(ChronoUnit.MINUTES);
+            return new Deadline(at, true, remove(text, duration));
+        }
+
+        String remainder = text;
+        LocalTime time = null;
+        Matcher time12 = TIME_12H.matcher(remainder);
+        Matcher time24 = TIME_24H.matcher(remainder);
+        Matcher endOfDay = END_OF_DAY.matcher(remainder);
+        if (time12.find()) {
+            int hour = Integer.parseInt(time12.group(1)) % 12;
+            if (time12.group(3).equalsIgnoreCase("pm")) {
+                hour += 12;
+            }
+            int minute = time12.group(2) != null ? Integer.parseInt(time12.group(2)) : 0;
+            time = LocalTime.of(hour, minute);
+            remainder = remove(remainder, time12);
+        } else if (time24.find()) {
+            time = LocalTime.of(Integer.parseInt(time24.group(1)), Integer.parseInt(time24.group(2)));
+            remainder = remove(remainder, time24);
+        } else if (endOfDay.find()) {
+            time = DEFAULT_TIME;
+            remainder = remove(remainder, endOfDay);
+        }
+
+        Matcher day = DAY.matcher(remainder);
+        if (day.find()) {
+            String phrase = day.group(1).toLowerCase(Locale.ROOT);
+            ZonedDateTime date = resolveDay(phrase, now);
+            LocalTime at = time != null ? time : phrase.equals("tonight") ? LocalTime.of(20, 0) : DEFAULT_TIME;
+            return new Deadline(date.with(at), time != null, remove(remainder, day));
+        }
+
+        if (time != null) {
+            // A bare time means the next time the clock shows it
+            ZonedDateTime at = now.with(time).truncatedTo(ChronoUnit.MINUTES);
+            if (!at.isAfter(now)) {
+                at = at.plusDays(1);
+            }
+            return new Deadline(at, true, remainder);
+        }
+        return null;
+    }
+
+    private static ZonedDateTime resolveDay(String phrase, ZonedDateTime now) {
+        ZonedDateTime today = now.truncatedTo(ChronoUnit.DAYS);
+        return switch (phrase) {
+            case "today", "tonight" -> today;
+            case "tomorrow", "tmrw", "tmr" -> today.plusDays(1);
+            case "day after tomorrow" -> today.plusDays(2);
+            case "next week" -> today.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+            default -> {
+                String[] words = phrase.split("\\s+");
+                DayOfWeek weekday = DayOfWeek.valueOf(words[words.length - 1].toUpperCase(Locale.ROOT));
+                yield words[0].equals("this")
+                        ? today.with(TemporalAdjusters.nextOrSame(weekday))
+                        : today.with(TemporalAdjusters.next(weekday));
+            }
+        };
+    }
+
+    private static Duration toDuration(long amount, String unit) {
+        String u = unit.toLowerCase(Locale.ROOT);
+        if (u.startsWith("m")) {
+            return Duration.ofMinutes(amount);
+        }
+        if (u.startsWith("h")) {
+            return Duration.ofHours(amount);
+        }
+        if (u.startsWith("d")) {
+            return Duration.ofDays(amount);
+        }
+        return Duration.ofDays(7 * amount);
+    }
+
+    private static String remove(String text, Matcher matcher) {
+        return (text.substring(0, matcher.start()) + " " + text.substring(matcher.end())).trim();
+    }
+}
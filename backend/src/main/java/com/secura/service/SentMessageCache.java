@@ -0,0 +1,46 @@
+package com.secura.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of recently sent messages keyed by (sender, tempId), so client retries are
+ * confirmed with the original message id without touching Mongo. The unique
+ * {@code sender_temp_id} index backs this up for retries that miss the cache.
+ */
+@Component
+public class SentMessageCache {
+
+    public record SentMessage(String messageId, Boolean delivered) {
+    }
+
+    private final Map<String, SentMessage> entries;
+
+    public SentMessageCache(@Value("${secura.messages.dedup-cache-size:10000}") int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SentMessage> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public SentMessage get(String sender, String tempId) {
+        synchronized (entries) {
+            return entries.get(key(sender, tempId));
+        }
+    }
+
+    public void put(String sender, String tempId, SentMessage sent) {
+        synchronized (entries) {
+            entries.put(key(sender, tempId), sent);
+        }
+    }
+
+    private static String key(String sender, String tempId) {
+        return sender + '\u0000' + tempId;
+    }
+}
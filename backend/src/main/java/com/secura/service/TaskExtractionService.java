@@ -0,0 +1,306 @@
+package com.secura.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secura.dto.ExtractTaskRequest;
+import com.secura.dto.TaskExtractionResult;
+import com.secura.entity.Task;
+import com.secura.exception.TaskExtractionException;
+import com.secura.repository.TaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Extracts tasks from conversations with the LLM, persists them and schedules their
+ * deadline notifications, one conversation at a time or in batches.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskExtractionService {
+
+    private final GroqClient groqClient;
+    private final ObjectMapper objectMapper;
+    private final TaskRepository taskRepository;
+    private final DeadlineScheduler deadlineScheduler;
+    private final RuleBasedTaskExtractor ruleBasedExtractor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${secura.tasks.extract.local-confidence:0.8}")
+    private double localConfidenceThreshold;
+
+    @Value("${secura.tasks.extract.concurrency:4}")
+    private int batchConcurrency;
+
+    @Value("${secura.tasks.extract.save-batch-size:50}")
+    private int saveBatchSize;
+
+    @Value("${secura.tasks.extract.save-window:200ms}")
+    private Duration saveWindow;
+
+    /**
+     * Extracts, saves and schedules the task for one conversation.
+     */
+    public Mono<Task> extractAndSchedule(ExtractTaskRequest request) {
+        return extract(request)
+                .flatMap(taskRepository::save)
+                .doOnNext(deadlineScheduler::schedule);
+    }
+
+    /**
+     * Extracts tasks for many conversations with at most {@code secura.tasks.extract.concurrency}
+     * LLM calls in flight. Tasks are saved with {@code saveAll} and scheduled together in
+     * batches; each result is emitted once its batch is persisted, in completion order. A
+     * missing or malformed conversation yields an error result for its index only.
+     */
+    public Flux<TaskExtractionResult> extractBatch(List<ExtractTaskRequest> requests) {
+        return Flux.range(0, requests.size())
+                // Deferred so a synchronous failure on one element stays with that element
+                .flatMap(index -> Mono.defer(() -> requests.get(index) != null
+                                ? extract(requests.get(index))
+                                : Mono.<Task>error(new TaskExtractionException("Conversation is missing")))
+                        .map(task -> TaskExtractionResult.extracted(index, task))
+                        .onErrorResume(error -> {
+                            // Upstream error details stay in the log, not in the response
+                            log.warn("Task extraction failed for conversation {}", index, error);
+                            return Mono.just(TaskExtractionResult.failed(index, "Task extraction failed"));
+                        }), batchConcurrency)
+                .bufferTimeout(saveBatchSize, saveWindow)
+                .concatMap(this::persist);
+    }
+
+    private Flux<TaskExtractionResult> persist(List<TaskExtractionResult> batch) {
+        List<Task> tasks = batch.stream()
+                .filter(result -> result.task() != null)
+                .map(TaskExtractionResult::task)
+                .toList();
+        if (tasks.isEmpty()) {
+            return Flux.fromIterable(batch);
+        }
+        // saveAll assigns ids to the same Task instances the results refer to
+        return taskRepository.saveAll(tasks)
+                .collectList()
+                .doOnNext(deadlineScheduler::scheduleAll)
+                .thenMany(Flux.fromIterable(batch))
+                .onErrorResume(error -> {
+                    log.error("Failed to save {} extracted tasks", tasks.size(), error);
+                    return Flux.fromIterable(batch)
+                            .map(result -> result.task() != null
+                                    ? TaskExtractionResult.failed(result.index(), "Failed to save task")
+                                    : result);
+                });
+    }
+
+    /**
+     * Asks the LLM for the task in one conversation; the returned task is not saved.
+     *
+     * @throws TaskExtractionException (as an error signal) if the conversation is empty or
+     *                                 the response cannot be parsed
+     */
+    public Mono<Task> extract(ExtractTaskRequest request) {
+        List<Map<String, String>> textList = request.getMessages();
+        if (textList == null || textList.isEmpty()) {
+            return Mono.error(new TaskExtractionException("Conversation has no messages"));
+        }
+        if (textList.stream().anyMatch(Objects::isNull)) {
+            return Mono.error(new TaskExtractionException("Conversation has a malformed message"));
+        }
+
+        String clientTimezoneId = (request.getTimezone() != null && !request.getTimezone().isEmpty())
+                ? request.getTimezone().get(0)
+                : ZoneId.systemDefault().toString();
+
+        ZoneId tempZone;
+        try {
+            tempZone = ZoneId.of(clientTimezoneId);
+        } catch (Exception e) {
+            log.warn("Invalid timezone provided: {}, using system default", clientTimezoneId);
+            tempZone = ZoneId.systemDefault();
+        }
+        final ZoneId clientZone = tempZone;
+
+        // Get current date/time information in client's timezone
+        ZonedDateTime clientNow = ZonedDateTime.now(clientZone);
+
+        // Plain instructions are extracted locally; only ambiguous conversations go to the LLM
+        Optional<RuleBasedTaskExtractor.Match> local = ruleBasedExtractor.extract(textList, clientNow);
+        if (local.isPresent() && local.get().confidence() >= localConfidenceThreshold) {
+            countExtraction("local");
+            return Mono.just(local.get().task());
+        }
+        countExtraction("llm");
+
+        ZonedDateTime utcNow = ZonedDateTime.now(ZoneOffset.UTC);
+
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy");
+        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("h:mm a z");
+        DateTimeFormatter isoFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+        String currentDate = clientNow.format(dateFormatter);
+        String currentTime = clientNow.format(timeFormatter);
+        String currentIsoDateTime = clientNow.format(isoFormatter);
+        String utcIsoDateTime = utcNow.format(isoFormatter);
+
+        // Combine the conversation
+        StringBuilder conversation = new StringBuilder();
+//        for (Map<String, String> msg : textList) {
+//            String sender = msg.getOrDefault("sender", "Unknown");
+//            String content = msg.getOrDefault("content", "");
+//            conversation.append(sender).append(": ").append(content).append("\n");
+//        }
+        for (Map<String, String> msg : textList) {
+            String sender = msg.getOrDefault("sender", "Unknown");
+            String recipient = msg.getOrDefault("recipient", "Unknown");
+            String content = msg.getOrDefault("content", "");
+            conversation.append(sender)
+                    .append(" -> ")
+                    .append(recipient)
+                    .append(": ")
+                    .append(content)
+                    .append("\n");
+        }
+
+        // Enhanced prompt with timezone context
+        String prompt = String.format(
+                "Client's Local Date: %s\n" +
+                        "Client's Local Time: %s\n" +
+                        "Client's Local ISO DateTime: %s\n" +
+                        "Client's Timezone: %s\n" +
+                        "UTC ISO DateTime: %s\n\n" +
+                        "Extract a single task from the following conversation. " +
+                        "The user is speaking in their local timezone (%s). When they say 'Monday', 'tomorrow', " +
+                        "'next week', '5 mins from now', etc., they mean in their local time. " +
+                        "Convert ALL relative dates to absolute ISO 8601 format in the CLIENT'S LOCAL TIMEZONE " +
+                        "(include the timezone offset like +05:30 or -07:00). " +
+                        "Return valid JSON with keys: task_title, deadline (ISO 8601 format with timezone offset, else null), " +
+                        "assignee (if any, else null), assigned_by (the person who gave the task, if identifiable, " +
+                        "else infer as the sender who instructed the task). " +
+                        "Do not include code fences or explanations, only JSON.\n\n" +
+                        "Conversation:\n%s",
+                currentDate, currentTime, currentIsoDateTime, clientZone.toString(),
+                utcIsoDateTime, clientZone.toString(), conversation.toString()
+        );
+
+        // Enhanced system message with timezone context
+        String systemMessage = String.format(
+                "You are a task extraction assistant. The user's current local date/time is %s at %s (timezone: %s). " +
+                        "When interpreting relative dates in conversations, use the user's local date/time as reference. " +
+                        "Always respond with ONLY a raw JSON object containing task_title, deadline, assignee, and assigned_by. " +
+                        "Convert relative time references to absolute ISO 8601 datetime format WITH the user's timezone offset. " +
+                        "Example: if user says 'tomorrow 2pm' and their timezone is +05:30, return '2025-09-12T14:00:00+05:30'.",
+                currentDate, currentTime, clientZone.toString()
+        );
+
+        Map<String, Object> body = Map.of(
+                "model", "llama-3.3-70b-versatile",
+                "messages", List.of(
+                        Map.of("role", "system", "content", systemMessage),
+                        Map.of("role", "user", "content", prompt)
+                ),
+                "temperature", 0.2,
+                "max_tokens", 300
+        );
+
+        return groqClient.complete("extract", body)
+                .map(content -> parseTask(content, textList, clientZone));
+    }
+
+    private void countExtraction(String source) {
+        Counter.builder("secura.tasks.extract.requests")
+                .description("Task extractions by where the task came from (local rules or LLM)")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Task parseTask(String completion, List<Map<String, String>> textList, ZoneId clientZone) {
+        String responseText = completion.isEmpty() ? "{}" : completion;
+
+        // Clean up (remove ```json ... ``` if present)
+        String cleaned = responseText
+                .replaceAll("(?s)```json", "")
+                .replaceAll("(?s)```", "")
+                .trim();
+
+        try {
+            Map<String, Object> taskData = objectMapper.readValue(cleaned, new TypeReference<>() {});
+
+            // Parse deadline and convert to UTC for storage
+            Instant deadlineUtc = null;
+            if (taskData.get("deadline") != null &&
+                    !taskData.get("deadline").toString().isBlank()) {
+                String deadlineStr = taskData.get("deadline").toString();
+                try {
+                    // Parse the deadline from LLM (should be in client's timezone)
+                    ZonedDateTime clientDeadline;
+
+                    if (deadlineStr.contains("+") || deadlineStr.contains("Z") || deadlineStr.contains("-")) {
+                        // Already has timezone information
+                        clientDeadline = ZonedDateTime.parse(deadlineStr);
+                    } else {
+                        // No timezone info, assume client's timezone
+                        LocalDateTime localDeadline = LocalDateTime.parse(deadlineStr);
+                        clientDeadline = localDeadline.atZone(clientZone);
+                    }
+
+                    // Convert to UTC for storage
+                    deadlineUtc = clientDeadline.toInstant();
+
+                    log.info("Parsed deadline - Client time: {}, UTC: {}",
+                            clientDeadline, deadlineUtc);
+
+                } catch (Exception e) {
+                    log.error("Failed to parse deadline: {}", deadlineStr, e);
+                    deadlineUtc = null;
+                }
+            }
+
+            // Handle assignedBy with fallback
+            String assignedBy = (String) taskData.get("assigned_by");
+            if (assignedBy == null || assignedBy.isBlank()) {
+                for (Map<String, String> msg : textList) {
+                    String content = msg.get("content");
+                    if (content != null && (
+                            content.toLowerCase().contains("finish") ||
+                                    content.toLowerCase().contains("complete") ||
+                                    content.toLowerCase().contains("do") ||
+                                    content.toLowerCase().contains("by "))) {
+                        assignedBy = msg.getOrDefault("sender", "Unknown");
+                        break;
+                    }
+                }
+                if (assignedBy == null) {
+                    assignedBy = "Unknown";
+                }
+            }
+
+            // Create task with UTC times
+            Task task = Task.builder()
+                    .taskTitle((String) taskData.getOrDefault("task_title", "Untitled Task"))
+                    .deadline(deadlineUtc) // Stored in UTC
+                    .assignee((String) taskData.get("assignee"))
+                    .assignedBy(assignedBy)
+                    .status(Task.Status.PENDING)
+                    // createdAt will be set by @CreatedDate annotation in UTC
+                    .build();
+
+            return task;
+        } catch (Exception e) {
+            log.error("Failed to parse task extraction response: {}", cleaned, e);
+            throw new TaskExtractionException("Failed to parse task extraction response", e);
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.secura.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.secura.entity.Task;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Service
@@ -18,10 +20,27 @@ import java.util.Map;
 @Slf4j
 public class TaskNotificationService {
 
-    private final ObjectMapper objectMapper;
-    private final Map<String, Sinks.Many<String>> userMessageSinks;
+    private static final int NOTIFY_CONCURRENCY = 64;
+
+    private final FrameEncoder frameEncoder;
+    private final ClusterMessageRouter messageRouter;
+    private final NotificationOutboxService outbox;
+
+    /**
+     * Delivers deadline notifications for many tasks, at most {@code NOTIFY_CONCURRENCY}
+     * deliveries in flight. Completes when every delivery has been attempted.
+     */
+    public Mono<Void> sendDeadlineNotifications(Collection<Task> tasks) {
+        return Flux.fromIterable(tasks)
+                .flatMapIterable(task -> deadlineNotifications(task).entrySet())
+                .flatMap(entry -> deliver(entry.getKey(), entry.getValue()), NOTIFY_CONCURRENCY)
+                .then();
+    }
+
+    // Recipient username -> notification for the assignee and (if different) the assigner
+    private Map<String, Map<String, Object>> deadlineNotifications(Task task) {
+        Map<String, Map<String, Object>> notifications = new LinkedHashMap<>();
 
-    public void sendDeadlineNotification(Task task) {
         Map<String, Object> notification = new HashMap<>();
         notification.put("type", "deadline_notification");
         notification.put("taskId", task.getId());
@@ -34,7 +53,7 @@ public class TaskNotificationService {
 
         // Notify assignee if present
         if (task.getAssignee() != null && !task.getAssignee().isBlank()) {
-            sendNotificationToUser(task.getAssignee(), notification);
+            notifications.put(task.getAssignee(), notification);
         }
 
         // Notify assigner if present (and not same as assignee)
@@ -45,28 +64,43 @@ public class TaskNotificationService {
                     "Task '" + task.getTaskTitle() + "' assigned to " +
                             (task.getAssignee() != null ? task.getAssignee() : "someone") +
                             " has reached its deadline!");
-            sendNotificationToUser(task.getAssignedBy(), assignerNotification);
+            notifications.put(task.getAssignedBy(), assignerNotification);
         }
+        return notifications;
     }
 
     private void sendNotificationToUser(String username, Map<String, Object> notification) {
+        deliver(username, notification).subscribe();
+    }
+
+    private Mono<Void> deliver(String username, Map<String, Object> notification) {
         if (username == null || username.isBlank()) {
             log.warn("No assignee/username provided, skipping notification: {}", notification);
-            return;
+            return Mono.empty();
         }
 
-        Sinks.Many<String> userSink = userMessageSinks.get(username);
-        if (userSink != null) {
-            try {
-                String jsonNotification = objectMapper.writeValueAsString(notification);
-                userSink.tryEmitNext(jsonNotification);
-                log.info("Sent deadline notification to user: {}", username);
-            } catch (Exception e) {
-                log.error("Error sending notification to user: {}", username, e);
-            }
-        } else {
-            log.warn("User {} is not connected, cannot send deadline notification", username);
+        byte[] frame;
+        try {
+            frame = frameEncoder.encode(notification);
+        } catch (Exception e) {
+            log.error("Error serializing notification for user: {}", username, e);
+            return Mono.empty();
         }
+
+        return messageRouter.deliver(username, frame)
+                .flatMap(delivered -> {
+                    if (delivered) {
+                        log.info("Sent deadline notification to user: {}", username);
+                        return Mono.<Void>empty();
+                    }
+                    log.info("User {} is not connected, queueing notification", username);
+                    return outbox.enqueue(username, notification);
+                })
+                .onErrorResume(error -> {
+                    log.error("Error sending notification to user: {}", username, error);
+                    return Mono.empty();
+                })
+                .then();
     }
 
 
@@ -5,35 +5,35 @@ import com.secura.job.TaskDeadlineJob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Quartz-backed deadline scheduling: one job and trigger per task.
+ */
 @Service
+@ConditionalOnProperty(name = "secura.deadlines.scheduler", havingValue = "quartz")
 @RequiredArgsConstructor
 @Slf4j
-public class TaskSchedulerService {
+public class TaskSchedulerService implements DeadlineScheduler {
 
     private final Scheduler scheduler;
 
-    public void scheduleTaskNotification(Task task) {
+    @Override
+    public void schedule(Task task) {
         if (task.getDeadline() == null) {
             log.warn("Task {} has no deadline, skipping scheduling", task.getId());
             return;
         }
 
         try {
-            JobDetail jobDetail = JobBuilder.newJob(TaskDeadlineJob.class)
-                    .withIdentity("task-" + task.getId(), "task-deadlines")
-                    .usingJobData("taskId", task.getId())
-                    .build();
-
-            Trigger trigger = TriggerBuilder.newTrigger()
-                    .withIdentity("trigger-" + task.getId(), "task-deadlines")
-                    .startAt(Date.from(task.getDeadline()))
-                    .build();
-
-            scheduler.scheduleJob(jobDetail, trigger);
+            scheduler.scheduleJob(jobFor(task), triggerFor(task));
             log.info("Scheduled deadline notification for task {} at {}", task.getId(), task.getDeadline());
 
         } catch (SchedulerException e) {
@@ -41,13 +41,40 @@ public class TaskSchedulerService {
         }
     }
 
-    public void cancelTaskNotification(Long taskId) {
+    /**
+     * Schedules deadline notifications for several tasks in one scheduler call.
+     */
+    @Override
+    public void scheduleAll(List<Task> tasks) {
+        Map<JobDetail, Set<? extends Trigger>> jobs = new HashMap<>();
+        for (Task task : tasks) {
+            if (task.getDeadline() != null) {
+                jobs.put(jobFor(task), Set.of(triggerFor(task)));
+            }
+        }
+        if (jobs.isEmpty()) {
+            return;
+        }
+
         try {
-            JobKey jobKey = new JobKey("task-" + taskId, "task-deadlines");
-            scheduler.deleteJob(jobKey);
-            log.info("Cancelled scheduled notification for task {}", taskId);
+            scheduler.scheduleJobs(jobs, false);
+            log.info("Scheduled {} deadline notifications", jobs.size());
         } catch (SchedulerException e) {
-            log.error("Error cancelling task deadline for {}", taskId, e);
+            log.error("Error scheduling {} task deadlines", jobs.size(), e);
         }
     }
+
+    private static JobDetail jobFor(Task task) {
+        return JobBuilder.newJob(TaskDeadlineJob.class)
+                .withIdentity("task-" + task.getId(), "task-deadlines")
+                .usingJobData("taskId", task.getId())
+                .build();
+    }
+
+    private static Trigger triggerFor(Task task) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity("trigger-" + task.getId(), "task-deadlines")
+                .startAt(Date.from(task.getDeadline()))
+                .build();
+    }
 }
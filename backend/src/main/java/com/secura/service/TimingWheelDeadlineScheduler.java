@@ -0,0 +1,299 @@
+package com.secura.service;
+
+import com.secura.entity.Task;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Deadline scheduling on an in-memory {@link HierarchicalTimingWheel}, with Mongo as the
+ * source of truth so it survives restarts and runs safely on several nodes.
+ * <p>
+ * Only deadlines within {@code secura.deadlines.horizon} are held in the wheel. On startup,
+ * and every half horizon after that, pending tasks in the next window are streamed in with
+ * keyset-paginated range scans. When a tick's bucket elapses, the node that wins a Redis
+ * lease for that bucket hands the bucket's range to {@link DeadlineDispatcher}, whose
+ * atomic claim guarantees each task is notified once; other nodes skip it. Lease keys
+ * outlive the rehydration grace period, so a restart does not retry buckets that were
+ * already fired. Deadlines older than the grace period that were never notified (they
+ * passed while no node was running) are dispatched directly on startup.
+ */
+@Service
+@ConditionalOnProperty(name = "secura.deadlines.scheduler", havingValue = "wheel", matchIfMissing = true)
+@Slf4j
+public class TimingWheelDeadlineScheduler implements DeadlineScheduler {
+
+    private static final String LEASE_KEY_PREFIX = "secura:deadlines:lease:";
+    private static final int DISPATCH_RETRIES = 2;
+    private static final Duration DISPATCH_RETRY_BACKOFF = Duration.ofMillis(200);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final DeadlineDispatcher dispatcher;
+    private final ClusterNode clusterNode;
+    private final Counter leasesLost;
+
+    @Value("${secura.deadlines.tick:1s}")
+    private Duration tick;
+
+    @Value("${secura.deadlines.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${secura.deadlines.horizon:1h}")
+    private Duration horizon;
+
+    @Value("${secura.deadlines.rehydrate-grace:5m}")
+    private Duration rehydrateGrace;
+
+    @Value("${secura.deadlines.rehydrate-page-size:5000}")
+    private int rehydratePageSize;
+
+    @Value("${secura.deadlines.lease-ttl:10m}")
+    private Duration leaseTtl;
+
+    private HierarchicalTimingWheel wheel;
+    private Disposable ticker;
+    private Disposable loader;
+
+    // Deadlines before this are in the wheel (or already fired); later ones are loaded when their window opens
+    private volatile long loadedUntil = Long.MIN_VALUE;
+
+    public TimingWheelDeadlineScheduler(ReactiveMongoTemplate mongoTemplate,
+                                        ReactiveStringRedisTemplate redisTemplate,
+                                        DeadlineDispatcher dispatcher,
+                                        ClusterNode clusterNode,
+                                        MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisTemplate = redisTemplate;
+        this.dispatcher = dispatcher;
+        this.clusterNode = clusterNode;
+        this.leasesLost = Counter.builder("secura.deadlines.leases.lost")
+                .description("Elapsed deadline buckets fired by another node")
+                .register(meterRegistry);
+        Gauge.builder("secura.deadlines.scheduled", this, TimingWheelDeadlineScheduler::scheduledCount)
+                .description("Deadlines waiting in the timing wheel")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel = new HierarchicalTimingWheel(tick.toMillis(), wheelSize, System.currentTimeMillis());
+        ticker = Flux.interval(tick)
+                .onBackpressureDrop()
+                .concatMap(unused -> fireDue()
+                        .onErrorResume(error -> {
+                            log.error("Error firing task deadlines", error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Loads pending deadlines from the grace period up to the horizon without blocking
+     * startup, then keeps loading the next window every half horizon. Anything older that
+     * is still un-notified is dispatched at once.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        long now = System.currentTimeMillis();
+        long until = now + horizon.toMillis();
+        loadedUntil = until;
+        long started = System.nanoTime();
+
+        // Missed during downtime; nodes starting together are deduplicated by the claim
+        Instant graceStart = Instant.ofEpochMilli(now - rehydrateGrace.toMillis());
+        dispatcher.dispatchRange(Instant.EPOCH, graceStart)
+                .retryWhen(Retry.backoff(DISPATCH_RETRIES, DISPATCH_RETRY_BACKOFF))
+                .subscribe(unused -> {}, error -> log.error("Failed to notify deadlines missed before {}",
+                        graceStart, error));
+
+        loadWindow(graceStart, Instant.ofEpochMilli(until))
+                .subscribe(count -> log.info("Rehydrated {} task deadlines in {} ms",
+                                count, Duration.ofNanos(System.nanoTime() - started).toMillis()),
+                        error -> log.error("Failed to rehydrate task deadlines", error));
+
+        loader = Flux.interval(horizon.dividedBy(2))
+                .onBackpressureDrop()
+                .concatMap(unused -> {
+                    long from = loadedUntil;
+                    long to = System.currentTimeMillis() + horizon.toMillis();
+                    loadedUntil = to;
+                    return loadWindow(Instant.ofEpochMilli(from), Instant.ofEpochMilli(to))
+                            .onErrorResume(error -> {
+                                log.error("Failed to load task deadlines up to {}", Instant.ofEpochMilli(to), error);
+                                return Mono.empty();
+                            });
+                })
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        if (loader != null) {
+            loader.dispose();
+        }
+    }
+
+    @Override
+    public void schedule(Task task) {
+        scheduleAll(List.of(task));
+    }
+
+    @Override
+    public void scheduleAll(List<Task> tasks) {
+        long now = System.currentTimeMillis();
+        List<Task> overdue = tasks.stream()
+                .filter(task -> task.getDeadline() != null && task.getDeadline().toEpochMilli() < now)
+                .toList();
+
+        synchronized (this) {
+            for (Task task : tasks) {
+                if (task.getDeadline() == null) {
+                    log.warn("Task {} has no deadline, skipping scheduling", task.getId());
+                    continue;
+                }
+                long deadline = task.getDeadline().toEpochMilli();
+                // Beyond the loaded window the task is picked up from Mongo when its window opens
+                if (deadline >= now && deadline < loadedUntil) {
+                    wheel.add(task.getId(), deadline);
+                }
+            }
+        }
+
+        // Already overdue when created: its bucket may have fired, so this node notifies it directly
+        if (!overdue.isEmpty()) {
+            dispatcher.dispatch(overdue.stream().map(Task::getId).toList())
+                    .subscribe(unused -> {}, error -> log.error("Error notifying overdue tasks", error));
+        }
+    }
+
+    private Mono<Void> fireDue() {
+        long tickMs = tick.toMillis();
+        Map<String, Long> due;
+        synchronized (this) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        if (due.isEmpty()) {
+            return Mono.empty();
+        }
+
+        TreeMap<Long, Map<String, Long>> buckets = new TreeMap<>();
+        due.forEach((id, deadline) -> buckets
+                .computeIfAbsent(deadline - Math.floorMod(deadline, tickMs), bucket -> new HashMap<>())
+                .put(id, deadline));
+        return Flux.fromIterable(buckets.entrySet())
+                .concatMap(bucket -> fireBucket(bucket.getKey(), bucket.getKey() + tickMs, bucket.getValue()))
+                .then();
+    }
+
+    private Mono<Void> fireBucket(long from, long to, Map<String, Long> deadlines) {
+        return acquireLease(from)
+                .flatMap(acquired -> {
+                    if (!acquired) {
+                        leasesLost.increment();
+                        return Mono.empty();
+                    }
+                    // Claims the whole bucket in one range update, including tasks scheduled on other nodes
+                    return dispatcher.dispatchRange(Instant.ofEpochMilli(from), Instant.ofEpochMilli(to))
+                            .retryWhen(Retry.backoff(DISPATCH_RETRIES, DISPATCH_RETRY_BACKOFF))
+                            .onErrorResume(error -> {
+                                // Give the bucket back: past deadlines fire again on the next tick, here or elsewhere
+                                log.error("Failed to fire deadline bucket {}, retrying next tick", from, error);
+                                synchronized (this) {
+                                    deadlines.forEach(wheel::add);
+                                }
+                                return releaseLease(from);
+                            });
+                });
+    }
+
+    private Mono<Boolean> acquireLease(long bucket) {
+        return redisTemplate.opsForValue()
+                .setIfAbsent(LEASE_KEY_PREFIX + bucket, clusterNode.getId(), leaseTtl)
+                .onErrorResume(error -> {
+                    // Firing without the lease is safe: the dispatcher's claim still prevents duplicates
+                    log.warn("Deadline lease unavailable for bucket {}, firing locally: {}", bucket, error.getMessage());
+                    return Mono.just(true);
+                });
+    }
+
+    private Mono<Void> releaseLease(long bucket) {
+        String key = LEASE_KEY_PREFIX + bucket;
+        return redisTemplate.opsForValue().get(key)
+                .filter(owner -> owner.equals(clusterNode.getId()))
+                .flatMap(owner -> redisTemplate.delete(key))
+                .onErrorResume(error -> {
+                    log.warn("Could not release deadline lease for bucket {}: {}", bucket, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Streams pending deadlines in [from, to) into the wheel in (deadline, id) keyset pages,
+     * projecting only the fields the wheel needs. Emits the number of deadlines loaded.
+     */
+    private Mono<Long> loadWindow(Instant from, Instant to) {
+        return loadPage(from, to, null)
+                .expand(page -> page.size() < rehydratePageSize
+                        ? Mono.empty()
+                        : loadPage(from, to, page.get(page.size() - 1)))
+                .map(page -> {
+                    synchronized (this) {
+                        for (Task task : page) {
+                            wheel.add(task.getId(), task.getDeadline().toEpochMilli());
+                        }
+                    }
+                    return (long) page.size();
+                })
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<List<Task>> loadPage(Instant from, Instant to, Task after) {
+        Criteria criteria = Criteria.where("status").is(Task.Status.PENDING)
+                .and("notified").ne(true)
+                .and("deadline").gte(from).lt(to);
+        if (after != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("deadline").gt(after.getDeadline()),
+                    Criteria.where("deadline").is(after.getDeadline()).and("id").gt(after.getId()));
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "deadline").and(Sort.by(Sort.Direction.ASC, "id")))
+                .limit(rehydratePageSize);
+        query.fields().include("deadline");
+        return mongoTemplate.find(query, Task.class).collectList();
+    }
+
+    private synchronized double scheduledCount() {
+        return wheel != null ? wheel.size() : 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.secura.service;
+
+import com.secura.dto.UserView;
+import com.secura.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated user directory ordered by username.
+ * <p>
+ * Only username, online and last_seen are read from Mongo; password hashes and public keys
+ * never leave the database. Pages and prefix searches are range scans on the unique
+ * username index, so cost per page does not grow with the number of users. Online state
+ * can be overlaid from {@link PresenceStore}, which is fresher than the write-behind
+ * fields in Mongo.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserDirectoryService {
+
+    private static final int OVERLAY_BATCH_SIZE = 500;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final PresenceStore presenceStore;
+
+    @Value("${secura.users.default-page-size:200}")
+    private int defaultPageSize;
+
+    @Value("${secura.users.max-page-size:1000}")
+    private int maxPageSize;
+
+    /**
+     * Up to {@code count} users after the {@code after} username, optionally restricted to
+     * usernames starting with {@code prefix}.
+     */
+    public Flux<UserView> page(String prefix, String after, int count, boolean livePresence) {
+        Query query = directoryQuery(prefix, after).limit(count);
+        return overlay(mongoTemplate.find(query, User.class).map(UserView::of), livePresence);
+    }
+
+    /**
+     * Every matching user, streamed from one cursor.
+     */
+    public Flux<UserView> export(String prefix, boolean livePresence) {
+        Query query = directoryQuery(prefix, null).cursorBatchSize(OVERLAY_BATCH_SIZE);
+        return overlay(mongoTemplate.find(query, User.class).map(UserView::of), livePresence);
+    }
+
+    /**
+     * Clamps a client-requested page size to the configured bounds.
+     */
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    private static Query directoryQuery(String prefix, String after) {
+        Criteria username = Criteria.where("username");
+        boolean bounded = false;
+        if (prefix != null && !prefix.isEmpty()) {
+            // A range rather than a regex so the scan stays on the index bounds
+            username = username.gte(prefix).lt(prefix + Character.MAX_VALUE);
+            bounded = true;
+        }
+        if (after != null && !after.isEmpty()) {
+            username = username.gt(after);
+            bounded = true;
+        }
+
+        Query query = bounded ? Query.query(username) : new Query();
+        query.fields().include("username", "online", "last_seen").exclude("id");
+        return query.with(Sort.by(Sort.Direction.ASC, "username"));
+    }
+
+    // One presence lookup per chunk of users instead of one per user
+    private Flux<UserView> overlay(Flux<UserView> users, boolean livePresence) {
+        if (!livePresence) {
+            return users;
+        }
+        return users
+                .buffer(OVERLAY_BATCH_SIZE)
+                .concatMap(chunk -> presenceStore
+                        .getAll(chunk.stream().map(UserView::username).toList())
+                        .flatMapIterable(states -> withPresence(chunk, states)));
+    }
+
+    private static List<UserView> withPresence(List<UserView> users, Map<String, PresenceStore.PresenceState> states) {
+        return users.stream()
+                .map(user -> {
+                    PresenceStore.PresenceState state = states.get(user.username());
+                    return state == null
+                            ? user
+                            : new UserView(user.username(), state.online(), state.lastSeen());
+                })
+                .toList();
+    }
+}
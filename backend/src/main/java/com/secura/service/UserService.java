@@ -3,45 +3,54 @@ package com.secura.service;
 import com.secura.entity.User;
 import com.secura.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class UserService {
 
     private final UserRepository userRepository;
-    private final ReactiveStringRedisTemplate redisTemplate;
-
-    private static final String USER_KEY_PREFIX = "user:publicKey:";
+    private final PublicKeyCache publicKeyCache;
+    private final PasswordHashingService passwordHashing;
+    private final ReactiveMongoTemplate mongoTemplate;
 
     public Mono<String> getPublicKey(String username) {
-        String redisKey = USER_KEY_PREFIX + username;
-
-        return redisTemplate.opsForValue().get(redisKey)
-                .switchIfEmpty(
-                        userRepository.findByUsername(username)
-                                .flatMap(user -> {
-                                    String publicKey = user.getPublicKey();
-                                    return redisTemplate.opsForValue()
-                                            .set(redisKey, publicKey, Duration.ofMinutes(5))
-                                            .thenReturn(publicKey);
-                                })
-                );
+        return publicKeyCache.get(username);
+    }
+
+    public Mono<Map<String, String>> getPublicKeys(Collection<String> usernames) {
+        return publicKeyCache.getAll(usernames);
+    }
+
+    public boolean isPublicKeyChanged(User user, String newPublicKey) {
+        return newPublicKey != null && !newPublicKey.isBlank()
+                && !newPublicKey.equals(user.getPublicKey());
     }
 
     /**
-     * Save user and invalidate Redis cache if public key changed.
+     * Save a newly registered user, clearing any cached "unknown user" entry.
      */
-    public Mono<User> saveUser(User user, String newPublicKey) {
-        String redisKey = USER_KEY_PREFIX + user.getUsername();
+    public Mono<User> createUser(User user) {
+        return userRepository.save(user)
+                .flatMap(savedUser -> publicKeyCache.invalidate(savedUser.getUsername())
+                        .thenReturn(savedUser));
+    }
 
-        boolean keyChanged = (newPublicKey != null && !newPublicKey.isBlank()
-                && !newPublicKey.equals(user.getPublicKey()));
+    /**
+     * Save user and invalidate the cached key on every node if the public key changed.
+     */
+    public Mono<User> saveUser(User user, String newPublicKey) {
+        boolean keyChanged = isPublicKeyChanged(user, newPublicKey);
 
         if (keyChanged) {
             user.setPublicKey(newPublicKey);
@@ -50,10 +59,28 @@ public class UserService {
         return userRepository.save(user)
                 .flatMap(savedUser -> {
                     if (keyChanged) {
-                        return redisTemplate.opsForValue().delete(redisKey)
+                        return publicKeyCache.invalidate(savedUser.getUsername())
                                 .thenReturn(savedUser);
                     }
                     return Mono.just(savedUser);
                 });
     }
+
+    /**
+     * Re-hashes the password at the configured BCrypt cost if the stored hash is weaker.
+     * Call after a successful login; the update only applies if the hash was not changed meanwhile.
+     */
+    public void upgradePasswordHash(String username, String storedHash, String rawPassword) {
+        if (!passwordHashing.needsRehash(storedHash)) {
+            return;
+        }
+        passwordHashing.encode(rawPassword)
+                .flatMap(newHash -> mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("username").is(username).and("password").is(storedHash)),
+                        new Update().set("password", newHash),
+                        User.class))
+                .subscribe(
+                        result -> log.info("Upgraded password hash for user {}", username),
+                        error -> log.warn("Could not upgrade password hash for user {}", username, error));
+    }
 }
@@ -0,0 +1,44 @@
+package com.secura.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressResolverTest {
+
+    private static MockServerHttpRequest request(String peer, String... forwardedFor) {
+        return MockServerHttpRequest.post("/api/login")
+                .remoteAddress(new InetSocketAddress(peer, 40000))
+                .header("X-Forwarded-For", forwardedFor)
+                .build();
+    }
+
+    @Test
+    void ignoresForwardedForFromUntrustedPeer() {
+        ClientAddressResolver resolver = new ClientAddressResolver(List.of());
+
+        assertThat(resolver.resolve(request("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void usesRightmostUntrustedHopBehindTrustedProxy() {
+        ClientAddressResolver resolver = new ClientAddressResolver(List.of("10.0.0.0/8"));
+
+        // The client prepended 1.2.3.4 itself; the proxy appended the address it saw
+        String ip = resolver.resolve(request("10.0.0.5", "1.2.3.4, 198.51.100.1, 10.0.0.9"));
+
+        assertThat(ip).isEqualTo("198.51.100.1");
+    }
+
+    @Test
+    void fallsBackToLastTrustedHopWhenHeaderIsUnusable() {
+        ClientAddressResolver resolver = new ClientAddressResolver(List.of("10.0.0.5"));
+
+        assertThat(resolver.resolve(request("10.0.0.5", "evil.example.com"))).isEqualTo("10.0.0.5");
+        assertThat(resolver.resolve(request("10.0.0.5"))).isEqualTo("10.0.0.5");
+    }
+}
@@ -0,0 +1,56 @@
+package com.secura.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+
+    // 10 ms ticks, 4 slots per level: the root wheel covers 40 ms, the next level 160 ms
+    private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 4, 0);
+
+    @Test
+    void firesOnlyOnceTheDeadlineTickHasElapsed() {
+        wheel.add("a", 5);
+
+        assertThat(wheel.advance(9)).isEmpty();
+        assertThat(wheel.advance(10)).containsExactly(Map.entry("a", 5L));
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesFarDeadlinesDownThroughCoarserLevels() {
+        wheel.add("near", 35);
+        wheel.add("mid", 170);
+        wheel.add("far", 1000);
+
+        assertThat(wheel.advance(39)).isEmpty();
+        assertThat(wheel.advance(40)).containsOnlyKeys("near");
+        assertThat(wheel.advance(179)).isEmpty();
+        assertThat(wheel.advance(180)).containsOnlyKeys("mid");
+        assertThat(wheel.advance(1009)).isEmpty();
+        assertThat(wheel.advance(1010)).containsExactly(Map.entry("far", 1000L));
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextAdvance() {
+        wheel.advance(500);
+        wheel.add("late", 100);
+
+        assertThat(wheel.advance(501)).containsExactly(Map.entry("late", 100L));
+    }
+
+    @Test
+    void removeAndReAddReplaceTheEarlierDeadline() {
+        wheel.add("cancelled", 200);
+        wheel.add("moved", 60);
+        wheel.add("moved", 300);
+
+        assertThat(wheel.remove("cancelled")).isTrue();
+        assertThat(wheel.remove("cancelled")).isFalse();
+        assertThat(wheel.advance(299)).isEmpty();
+        assertThat(wheel.advance(310)).containsExactly(Map.entry("moved", 300L));
+    }
+}
@@ -0,0 +1,82 @@
+package com.secura.service;
+
+import com.secura.exception.LoginRateLimitedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginRateLimiterTest {
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        limiter = new LoginRateLimiter(redisTemplate, new SimpleMeterRegistry(), 5, 0.1, 50, 5);
+    }
+
+    private void scriptReturns(Flux<Long> result) {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList()))
+                .thenReturn(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> chargedKeys() {
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).execute(ArgumentMatchers.<RedisScript<Long>>any(), keys.capture(), anyList());
+        return keys.getValue();
+    }
+
+    @Test
+    void passwordAttemptChargesTheUsernameAloneAndTheIp() {
+        scriptReturns(Flux.just(0L));
+
+        limiter.acquire("alice", "203.0.113.7").block();
+
+        assertThat(chargedKeys()).containsExactly(
+                "secura:login:rl:user:alice", "secura:login:rl:ip:203.0.113.7");
+    }
+
+    @Test
+    void tokenAttemptChargesOnlyTheIp() {
+        scriptReturns(Flux.just(0L));
+
+        limiter.acquire("203.0.113.7").block();
+
+        assertThat(chargedKeys()).containsExactly("secura:login:rl:ip:203.0.113.7");
+    }
+
+    @Test
+    void exhaustedBucketRejectsWithRetryAfter() {
+        scriptReturns(Flux.just(1500L));
+
+        assertThatThrownBy(() -> limiter.acquire("alice", "203.0.113.7").block())
+                .isInstanceOf(LoginRateLimitedException.class)
+                .extracting(error -> ((LoginRateLimitedException) error).getRetryAfter())
+                .isEqualTo(Duration.ofMillis(1500));
+    }
+
+    @Test
+    void failsOpenWhenRedisIsUnavailable() {
+        scriptReturns(Flux.error(new RedisConnectionFailureException("down")));
+
+        limiter.acquire("alice", "203.0.113.7").block();
+    }
+}
@@ -0,0 +1,39 @@
+package com.secura.service;
+
+import com.secura.repository.MessageRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class MessageHistoryServiceTest {
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final MessageHistoryService history = new MessageHistoryService(messageRepository);
+
+    @Test
+    void acceptsNoCursorOrACompleteOne() {
+        assertThat(history.isValidCursor(null, null)).isTrue();
+        assertThat(history.isValidCursor(Instant.now(), new ObjectId().toHexString())).isTrue();
+    }
+
+    @Test
+    void rejectsHalfACursorOrAMalformedId() {
+        assertThat(history.isValidCursor(Instant.now(), null)).isFalse();
+        assertThat(history.isValidCursor(null, new ObjectId().toHexString())).isFalse();
+        assertThat(history.isValidCursor(Instant.now(), "not-an-object-id")).isFalse();
+    }
+
+    @Test
+    void invalidCursorFailsThePageWithoutQuerying() {
+        assertThatThrownBy(() -> history.page("alice", Instant.now(), "not-an-object-id", 50).blockLast())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid history cursor");
+        verifyNoInteractions(messageRepository);
+    }
+}
@@ -0,0 +1,87 @@
+package com.secura.service;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.secura.entity.NotificationOutbox;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class NotificationOutboxServiceTest {
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static ReactiveMongoTemplate mongoTemplate;
+
+    private NotificationOutboxService outbox;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+        mongoTemplate = new ReactiveMongoTemplate(client, "secura_test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(NotificationOutbox.class).block();
+        outbox = new NotificationOutboxService(mongoTemplate);
+        ReflectionTestUtils.setField(outbox, "maxPerUser", 3);
+        ReflectionTestUtils.setField(outbox, "ttl", Duration.ofDays(7));
+    }
+
+    @Test
+    void enqueuedNotificationsAreReplayedAndRemoved() {
+        outbox.enqueue("alice", Map.of("type", "custom_notification", "n", 1)).block();
+        outbox.enqueue("alice", Map.of("type", "custom_notification", "n", 2)).block();
+
+        List<NotificationOutbox.Entry> pending = outbox.pending("alice", 10).block();
+        assertThat(pending).extracting(entry -> entry.getFrame().get("n")).containsExactly(1, 2);
+
+        // Keyed by _id, not by a generated id plus a stray "id" field
+        Document stored = mongoTemplate.getCollection("notification_outbox")
+                .flatMap(collection -> Mono.from(collection.find().first()))
+                .block();
+        assertThat(stored.get("_id")).isEqualTo("alice");
+        assertThat(stored).doesNotContainKey("id");
+
+        outbox.remove("alice", List.of(pending.get(0).getEntryId())).block();
+
+        assertThat(outbox.pending("alice", 10).block())
+                .extracting(entry -> entry.getFrame().get("n")).containsExactly(2);
+    }
+
+    @Test
+    void enqueueKeepsNewestEntriesAndPendingHonoursLimit() {
+        for (int n = 1; n <= 5; n++) {
+            outbox.enqueue("bob", Map.of("n", n)).block();
+        }
+
+        assertThat(outbox.pending("bob", 10).block())
+                .extracting(entry -> entry.getFrame().get("n")).containsExactly(3, 4, 5);
+        assertThat(outbox.pending("bob", 2).block())
+                .extracting(entry -> entry.getFrame().get("n")).containsExactly(3, 4);
+        assertThat(outbox.pending("carol", 10).block()).isNull();
+    }
+}
@@ -0,0 +1,113 @@
+package com.secura.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundQueueTest {
+
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    private OutboundQueue queue(int capacity, OutboundQueue.OverflowPolicy policy) {
+        return new OutboundQueue(capacity, policy,
+                new OutboundQueueFactory.Metrics(new SimpleMeterRegistry()), evictions::incrementAndGet);
+    }
+
+    private static byte[] frame(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> drain(OutboundQueue queue, int count) {
+        return queue.asFlux()
+                .take(count)
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+                .collectList()
+                .block();
+    }
+
+    @Test
+    void dropOldestShedsTheOldestPresenceFrame() {
+        OutboundQueue queue = queue(2, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+
+        queue.offerPresence(null, frame("p1"));
+        queue.offerPresence(null, frame("p2"));
+        assertThat(queue.offerPresence(null, frame("p3"))).isTrue();
+
+        assertThat(drain(queue, 2)).containsExactly("p2", "p3");
+        assertThat(evictions).hasValue(0);
+    }
+
+    @Test
+    void chatFramesDisplacePresenceAndAreDrainedFirst() {
+        OutboundQueue queue = queue(2, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+
+        queue.offerPresence(null, frame("p1"));
+        queue.offerPresence(null, frame("p2"));
+        assertThat(queue.offerMessage(frame("m1"))).isTrue();
+
+        assertThat(drain(queue, 2)).containsExactly("m1", "p2");
+    }
+
+    @Test
+    void presenceIsDroppedWhenChatFramesFillTheQueue() {
+        OutboundQueue queue = queue(1, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+
+        queue.offerMessage(frame("m1"));
+
+        assertThat(queue.offerPresence(null, frame("p1"))).isFalse();
+        assertThat(queue.depth()).isEqualTo(1);
+        assertThat(evictions).hasValue(0);
+    }
+
+    @Test
+    void chatOverflowEvictsTheSession() {
+        OutboundQueue queue = queue(1, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+
+        queue.offerMessage(frame("m1"));
+
+        assertThat(queue.offerMessage(frame("m2"))).isFalse();
+        assertThat(evictions).hasValue(1);
+        assertThat(queue.offerMessage(frame("m3"))).isFalse();
+        assertThat(queue.replayRoom()).isEqualTo(-1);
+        assertThat(evictions).hasValue(1);
+    }
+
+    @Test
+    void coalesceReplacesAQueuedFrameWithTheSameKey() {
+        OutboundQueue queue = queue(4, OutboundQueue.OverflowPolicy.COALESCE);
+
+        queue.offerPresence("presence:alice", frame("alice-offline"));
+        queue.offerPresence("presence:bob", frame("bob-online"));
+        queue.offerPresence("presence:alice", frame("alice-online"));
+
+        assertThat(queue.depth()).isEqualTo(2);
+        assertThat(drain(queue, 2)).containsExactly("bob-online", "alice-online");
+    }
+
+    @Test
+    void disconnectEvictsAsSoonAsTheQueueIsFull() {
+        OutboundQueue queue = queue(1, OutboundQueue.OverflowPolicy.DISCONNECT);
+
+        queue.offerPresence(null, frame("p1"));
+
+        assertThat(queue.offerPresence(null, frame("p2"))).isFalse();
+        assertThat(evictions).hasValue(1);
+        assertThat(queue.depth()).isZero();
+    }
+
+    @Test
+    void replayRoomLeavesHalfTheCapacityForLiveTraffic() {
+        OutboundQueue queue = queue(8, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+
+        queue.offerMessage(frame("m1"));
+
+        assertThat(queue.replayRoom()).isEqualTo(3);
+        queue.complete();
+        assertThat(queue.replayRoom()).isEqualTo(-1);
+    }
+}
@@ -1,7 +1,7 @@
 // src/hooks/useAuth.js
 import { useState, useRef, useEffect } from 'react';
 import { generateOrLoadKeyPair } from '../utils/keyUtils';
-import { registerUser, loginUser, connectWebSocket, registerWebSocketUser, fetchUserPublicKey } from '../services/api';
+import { registerUser, loginUser, loginWithStoredToken, clearLoginToken, connectWebSocket, registerWebSocketUser, fetchUserPublicKey } from '../services/api';
 import { messageUtils } from '../utils/messageUtils';
 
 export const useAuth = () => {
@@ -45,7 +45,7 @@ export const useAuth = () => {
       const currentPublicKey = await fetchUserPublicKey(recipientUsername);
       const cachedUser = userMapRef.current[recipientUsername];
       
-      if (cachedUser && cachedUser.publicKey !== currentPublicKey) {
+      if (cachedUser && cachedUser.publicKey && cachedUser.publicKey !== currentPublicKey) {
         console.log(`Key change detected for ${recipientUsername}`);
         
         setUserMap(prev => ({
@@ -69,7 +69,7 @@ export const useAuth = () => {
         return currentPublicKey;
       }
       
-      return cachedUser ? cachedUser.publicKey : currentPublicKey;
+      return (cachedUser && cachedUser.publicKey) || currentPublicKey;
     } catch (error) {
       console.error('Error checking recipient key change:', error);
       throw error;
@@ -81,7 +81,7 @@ export const useAuth = () => {
       const currentPublicKey = await fetchUserPublicKey(senderUsername);
       const cachedUser = userMapRef.current[senderUsername];
       
-      if (cachedUser && cachedUser.publicKey !== currentPublicKey) {
+      if (cachedUser && cachedUser.publicKey && cachedUser.publicKey !== currentPublicKey) {
         console.log(`Sender key change detected for ${senderUsername}`);
         
         setUserMap(prev => ({
@@ -105,7 +105,7 @@ export const useAuth = () => {
         return currentPublicKey;
       }
       
-      return cachedUser ? cachedUser.publicKey : currentPublicKey;
+      return (cachedUser && cachedUser.publicKey) || currentPublicKey;
     } catch (error) {
       console.error('Error validating sender key:', error);
       return null;
@@ -135,7 +135,7 @@ export const useAuth = () => {
           console.warn(`Could not find user: ${otherUsername}`);
           return { ...msg, decrypted: `[Unknown user: ${otherUsername}]` };
         }
-        otherUserPublicKey = otherUser.publicKey;
+        otherUserPublicKey = otherUser.publicKey || await fetchUserPublicKey(otherUsername);
       }
 
       const decryptedText = await messageUtils.decryptMessage(
@@ -207,6 +207,7 @@ export const useAuth = () => {
   };
 
   const logout = () => {
+    clearLoginToken(username);
     localStorage.removeItem('username');
     localStorage.removeItem('privateKey');
     localStorage.removeItem('publicKey');
@@ -226,6 +227,12 @@ export const useAuth = () => {
       
       setPrivateKeyAndRef(privKey);
       setPublicKeyBase64(pubKey);
+      try {
+        await loginWithStoredToken(storedUsername, pubKey);
+      } catch (error) {
+        // An expired token only loses the fast path; the stored session still connects
+        console.warn('Stored login token rejected:', error.message);
+      }
       await connectWebSocket();
       registerWebSocketUser(storedUsername);
       return { success: true, privateKey: privKey, publicKey: pubKey };
@@ -93,6 +93,16 @@ const unsubscribeMessageSent = onWebSocketMessage('message_sent', async (data) =
       updateUserPresence(data.username, data.online, data.lastSeen);
     });
 
+    // Handle batched presence updates
+    // The server sends one shared batch to every session, so it may include our own update
+    const unsubscribeUserPresenceBatch = onWebSocketMessage('user_presence_batch', (data) => {
+      const self = localStorage.getItem('username');
+      (data.updates || []).forEach(update => {
+        if (update.username === self) return;
+        updateUserPresence(update.username, update.online, update.lastSeen);
+      });
+    });
+
     // Handle registration success
     const unsubscribeRegistration = onWebSocketMessage('registration_success', (data) => {
       console.log('WebSocket registration successful:', data);
@@ -135,6 +145,7 @@ const unsubscribeMessageSent = onWebSocketMessage('message_sent', async (data) =
       unsubscribeMessageHistory();
       unsubscribeMessageSent();
       unsubscribeUserPresence();
+      unsubscribeUserPresenceBatch();
       unsubscribeRegistration();
       unsubscribePendingTasks();
       unsubscribeCustomNotification();
@@ -20,21 +20,49 @@ export const registerUser = async (username, publicKey, password) => {
   return res;
 };
 
-export const loginUser = async (username, publicKey, password) => {
+const loginTokenKey = (username) => `loginToken:${username}`;
+
+const postLogin = async (username, credentials) => {
   const res = await fetch(`${apiBase}/login`, {
     method: 'POST',
     headers: { 'Content-Type': 'application/json' },
-    body: JSON.stringify({ username, password, publicKey })
+    body: JSON.stringify({ username, ...credentials })
   });
 
+  // A stored token is single-use, and a password login supersedes it
+  localStorage.removeItem(loginTokenKey(username));
+
   if (!res.ok) {
     const errorText = await res.text();
     throw new Error(`Login failed: ${errorText}`);
   }
 
+  const data = await res.clone().json();
+  if (data.loginToken) {
+    localStorage.setItem(loginTokenKey(username), data.loginToken);
+  }
+
   return res;
 };
 
+// Always sends the typed password; a stored token is never used in its place
+export const loginUser = async (username, publicKey, password) =>
+  postLogin(username, { password, publicKey });
+
+// Session restore: the token from the last login skips the password check on the server.
+// Resolves to null when there is no stored token.
+export const loginWithStoredToken = async (username, publicKey) => {
+  const loginToken = localStorage.getItem(loginTokenKey(username));
+  if (!loginToken) {
+    return null;
+  }
+  return postLogin(username, { loginToken, publicKey });
+};
+
+export const clearLoginToken = (username) => {
+  localStorage.removeItem(loginTokenKey(username));
+};
+
 export const fetchUserPublicKey = async (username) => {
   try {
     const res = await fetch(`${apiBase}/users/${username}`);
@@ -50,10 +78,30 @@ export const fetchUserPublicKey = async (username) => {
 };
 
 
+// The server caps a bulk key lookup at secura.keys.max-batch usernames
+const keyBatchSize = 500;
+
+export const fetchPublicKeys = async (usernames) => {
+  const keys = {};
+  for (let i = 0; i < usernames.length; i += keyBatchSize) {
+    const res = await fetch(`${apiBase}/users/keys`, {
+      method: 'POST',
+      headers: { 'Content-Type': 'application/json' },
+      body: JSON.stringify({ usernames: usernames.slice(i, i + keyBatchSize) })
+    });
+    if (!res.ok) throw new Error('Failed to fetch public keys');
+    Object.assign(keys, (await res.json()).keys);
+  }
+  return keys;
+};
+
+// The directory no longer carries keys; they are merged in from the bulk key lookup
 export const fetchUsers = async () => {
   const res = await fetch(`${apiBase}/users`);
   if (!res.ok) throw new Error('Failed to fetch users');
-  return await res.json();
+  const users = await res.json();
+  const keys = users.length > 0 ? await fetchPublicKeys(users.map(u => u.username)) : {};
+  return users.map(u => ({ ...u, publicKey: keys[u.username] }));
 };
 
 export const connectWebSocket = async (wsUrl) => {